@@ -0,0 +1,44 @@
+package com.dsp.assignment1;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The small corpus bundled with the benchmarks (src/jmh/resources/corpus.txt).
+ */
+public class BenchmarkCorpus {
+    private static final String RESOURCE = "/corpus.txt";
+
+    public static String text() {
+        try (InputStream in = BenchmarkCorpus.class.getResourceAsStream(RESOURCE)) {
+            ByteArrayOutputStream text = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                text.write(buffer, 0, read);
+            }
+            return text.toString("UTF-8");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copies the corpus to a temporary file, since Worker.analyze reads documents from disk.
+     */
+    public static File toTempFile() {
+        try (InputStream in = BenchmarkCorpus.class.getResourceAsStream(RESOURCE)) {
+            File file = File.createTempFile("bench_corpus", ".txt");
+            file.deleteOnExit();
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
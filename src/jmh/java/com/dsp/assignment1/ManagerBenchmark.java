@@ -0,0 +1,104 @@
+package com.dsp.assignment1;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Manager result aggregation and summary building for jobs with many tasks.
+ * Runs against the in-memory queue and a temporary blob directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ManagerBenchmark {
+    private static final String REPLY_QUEUE_NAME = "LocalAppQueue-bench";
+
+    @Param({"1000", "10000", "100000"})
+    public int taskCount;
+
+    private Path blobDir;
+    private String replyQueueUrl;
+
+    private String jobId;
+    private List<QueueMessage> results;
+
+    @Setup(Level.Trial)
+    public void setupServices() throws IOException {
+        blobDir = Files.createTempDirectory("bench_blobs");
+        Services.install(new InMemoryQueueService(), new LocalBlobStore(blobDir), null);
+        Manager.setupQueues();
+    }
+
+    @Setup(Level.Invocation)
+    public void setupJob() {
+        QueueService queues = Services.queues();
+        if (replyQueueUrl != null) {
+            queues.deleteQueue(replyQueueUrl); // Drop the previous invocation's summary notification
+        }
+        replyQueueUrl = queues.createQueue(REPLY_QUEUE_NAME);
+
+        jobId = UUID.randomUUID().toString();
+        Manager.createJob(jobId, replyQueueUrl, taskCount);
+
+        // Results as listenForResults hands them over; deleting an unknown receipt handle is a no-op
+        results = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            String body = String.join("\t", jobId, "https://example.com/doc-" + i + ".txt",
+                    "s3://" + Utils.S3_BUCKET_NAME + "/output/" + jobId + "/" + i + ".txt", "POS");
+            results.add(new QueueMessage(body, "receipt-" + i));
+        }
+    }
+
+    /**
+     * Aggregates every result of a job; the last one builds and uploads the summary.
+     */
+    @Benchmark
+    public void processResults() {
+        for (QueueMessage message : results) {
+            Manager.processResult(message);
+        }
+    }
+
+    /**
+     * Summary building only: all but the last result are aggregated in setup, and their progress messages sent,
+     * as the Manager's progress timer would have done by then.
+     */
+    @State(Scope.Benchmark)
+    public static class AlmostFinishedJob {
+        QueueMessage lastResult;
+
+        @Setup(Level.Invocation)
+        public void setup(ManagerBenchmark benchmark) {
+            List<QueueMessage> results = benchmark.results;
+            for (int i = 0; i < results.size() - 1; i++) {
+                Manager.processResult(results.get(i));
+            }
+            Manager.reportProgress();
+            lastResult = results.get(results.size() - 1);
+        }
+    }
+
+    @Benchmark
+    public void finishJob(AlmostFinishedJob job) {
+        Manager.processResult(job.lastResult);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        try (Stream<Path> paths = Files.walk(blobDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
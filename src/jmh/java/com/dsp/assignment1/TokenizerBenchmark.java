@@ -0,0 +1,38 @@
+package com.dsp.assignment1;
+
+import edu.stanford.nlp.ling.HasWord;
+import edu.stanford.nlp.process.DocumentPreprocessor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sentence splitting and tokenization with DocumentPreprocessor, as done at the start of Worker.analyze.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenizerBenchmark {
+    private String corpus;
+
+    @Setup
+    public void setup() {
+        corpus = BenchmarkCorpus.text();
+    }
+
+    @Benchmark
+    public int tokenizeCorpus(Blackhole blackhole) {
+        int sentences = 0;
+        for (List<HasWord> sentence : new DocumentPreprocessor(new StringReader(corpus))) {
+            blackhole.consume(sentence);
+            sentences++;
+        }
+        return sentences;
+    }
+}
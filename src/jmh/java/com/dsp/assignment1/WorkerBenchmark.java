@@ -0,0 +1,106 @@
+package com.dsp.assignment1;
+
+import edu.stanford.nlp.ling.HasWord;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.process.DocumentPreprocessor;
+import edu.stanford.nlp.trees.GrammaticalStructureFactory;
+import edu.stanford.nlp.trees.PennTreebankLanguagePack;
+import edu.stanford.nlp.trees.Tree;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker hot paths: formatting a parse per analysis type, and end-to-end analyze throughput per thread count.
+ * The parser model is loaded from the CoreNLP models jar, so no download is needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class WorkerBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ParsedCorpus {
+        @Param({"POS", "CONSTITUENCY", "DEPENDENCY"})
+        public String analysisType;
+
+        List<Tree> trees = new ArrayList<>();
+        GrammaticalStructureFactory gsf;
+        int next;
+
+        @Setup
+        public void setup() {
+            LexicalizedParser parser = LexicalizedParser.loadModel(LexicalizedParser.DEFAULT_PARSER_LOC);
+            for (List<HasWord> sentence : new DocumentPreprocessor(new StringReader(BenchmarkCorpus.text()))) {
+                trees.add(parser.apply(sentence));
+            }
+            gsf = new PennTreebankLanguagePack().grammaticalStructureFactory();
+        }
+
+        Tree nextTree() {
+            Tree tree = trees.get(next);
+            next = (next + 1) % trees.size();
+            return tree;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class AnalyzeSetup {
+        @Param({"1", "2", "4"})
+        public int threads;
+
+        @Param({"POS"})
+        public String analysisType;
+
+        File document;
+        ExecutorService parsePool;
+
+        @Setup
+        public void setup() {
+            Worker.loadParser(LexicalizedParser.DEFAULT_PARSER_LOC);
+            document = BenchmarkCorpus.toTempFile();
+            parsePool = Executors.newFixedThreadPool(threads);
+        }
+
+        @TearDown
+        public void tearDown() {
+            parsePool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reports analyzed sentences per second next to the per-document time.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class SentenceCounter {
+        public long sentences;
+
+        int sentencesPerDocument = -1;
+    }
+
+    @Benchmark
+    public String processParseResult(ParsedCorpus corpus) {
+        return Worker.processParseResult(corpus.nextTree(), corpus.analysisType, corpus.gsf);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String analyze(AnalyzeSetup setup, SentenceCounter counter) throws IOException {
+        String output = Worker.analyze(setup.document, setup.analysisType, setup.parsePool);
+        if (counter.sentencesPerDocument < 0) {
+            counter.sentencesPerDocument = output.split("\n").length;
+        }
+        counter.sentences += counter.sentencesPerDocument;
+        return output;
+    }
+}
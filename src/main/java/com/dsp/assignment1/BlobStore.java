@@ -0,0 +1,41 @@
+package com.dsp.assignment1;
+
+import java.nio.file.Path;
+
+/**
+ * Object storage for input files, analysis outputs and summaries.
+ * Implemented by S3 (default) and by a local directory for single-node runs.
+ */
+public interface BlobStore {
+
+    void ensureBucketExists();
+
+    void putFile(String key, Path file);
+
+    void putBytes(String key, byte[] content);
+
+    /**
+     * Downloads the object to destination. The destination file must not exist.
+     */
+    void getFile(String key, Path destination);
+
+    /**
+     * Size of the object in bytes.
+     */
+    long size(String key);
+
+    /**
+     * Reads length bytes starting at offset (fewer if the object ends first) - a ranged GET on S3.
+     */
+    byte[] getRange(String key, long offset, int length);
+
+    /**
+     * Location of the object as written into result messages and summaries (e.g. "s3://bucket/key").
+     */
+    String uri(String key);
+
+    /**
+     * Inverse of uri: the key of an object of this store, or null if uri points elsewhere.
+     */
+    String keyOf(String uri);
+}
@@ -0,0 +1,439 @@
+package com.dsp.assignment1;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Chooses the instance type, heap and parse threads of new Workers, and how many to start, from the
+ * WorkerStats the Workers report and the backlog's size and analysis-type mix.
+ *
+ * Model: a backlog is CPU work, remaining tasks x sentences per document x CPU seconds per sentence, per type.
+ * A Worker with t parse threads on v vCPUs does min(t, v) x utilization CPU seconds per second, where utilization
+ * (the share of busy time spent parsing) is measured. Its heap is the baseline with the parser model loaded
+ * plus a measured high-water mark per thread, with headroom. The plan is the cheapest option that finishes
+ * the backlog within the target time; if none does, the fastest one. Per-vCPU speed is assumed equal across
+ * the catalog. Until Workers report, conservative defaults are used.
+ *
+ * Offline simulation with recorded stats (the Manager saves them to manager/worker-stats.tsv):
+ * java -cp yourjar.jar com.dsp.assignment1.CapacityPlanner POS=300,DEPENDENCY=100 [--stats worker-stats.tsv]
+ *     [--target-minutes 30] [--max-instances 18] [--active 0] [--instance-types t3.large,c5.xlarge]
+ */
+public class CapacityPlanner {
+    // On-demand Linux prices in us-east-1 (USD per hour); burstable types in unlimited mode pay for CPU above baseline
+    static final List<InstanceOption> CATALOG = Arrays.asList(
+            new InstanceOption("t3.medium", 2, 4096, 0.0416, 0.2),
+            new InstanceOption("t3.large", 2, 8192, 0.0832, 0.3),
+            new InstanceOption("t3.xlarge", 4, 16384, 0.1664, 0.4),
+            new InstanceOption("t3.2xlarge", 8, 32768, 0.3328, 0.4),
+            new InstanceOption("c5.xlarge", 4, 8192, 0.17, 1.0),
+            new InstanceOption("c5.2xlarge", 8, 16384, 0.34, 1.0),
+            new InstanceOption("m5.xlarge", 4, 16384, 0.192, 1.0),
+            new InstanceOption("m5.2xlarge", 8, 32768, 0.384, 1.0));
+    private static final double SURPLUS_CREDIT_PRICE = 0.05; // Per vCPU-hour above baseline
+
+    // Before any Worker has reported
+    private static final double DEFAULT_CPU_SECONDS_PER_SENTENCE = 0.25;
+    private static final double DEFAULT_SENTENCES_PER_DOCUMENT = 500;
+    private static final double DEFAULT_UTILIZATION = 0.8;
+    private static final int DEFAULT_HEAP_BASE_MB = 512;
+    private static final int DEFAULT_HEAP_PER_THREAD_MB = 1024;
+
+    private static final int OS_RESERVED_MB = 768;
+    private static final double HEAP_HEADROOM = 1.5;
+    private static final long ACTIVE_WORKER_MILLIS = 10 * 60 * 1000; // Stats older than this come from a stopped Worker
+
+    private final List<InstanceOption> catalog;
+    private final Map<String, Long> reportedAt = new ConcurrentHashMap<>();
+    // Least recently reported first; beyond WORKER_STATS_HISTORY Workers the oldest are dropped
+    private final Map<String, WorkerStats> stats = Collections.synchronizedMap(new LinkedHashMap<String, WorkerStats>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, WorkerStats> eldest) {
+            if (size() <= Utils.WORKER_STATS_HISTORY) return false;
+            reportedAt.remove(eldest.getKey());
+            return true;
+        }
+    });
+    private volatile WorkerSpec lastLaunched = WorkerSpec.DEFAULT;
+    private final AtomicBoolean unsaved = new AtomicBoolean(); // Stats reported since the last saveStats
+
+    public CapacityPlanner(List<InstanceOption> catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * The catalog, restricted to the comma-separated instance types in -Dmanager.instanceTypes if set.
+     */
+    public static CapacityPlanner fromProperties() {
+        return new CapacityPlanner(filterCatalog(System.getProperty("manager.instanceTypes")));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java -cp yourjar.jar com.dsp.assignment1.CapacityPlanner TYPE=TASKS,... [--stats FILE] [--target-minutes N] [--max-instances N] [--active N] [--instance-types T,...]");
+            System.exit(1);
+        }
+        Map<String, Double> backlog = new TreeMap<>();
+        for (String entry : args[0].split(",")) {
+            String[] typeAndTasks = entry.split("=");
+            backlog.put(typeAndTasks[0], Double.parseDouble(typeAndTasks[1]));
+        }
+        Path statsFile = null;
+        double targetMinutes = Utils.CAPACITY_TARGET_MINUTES;
+        int maxInstances = Utils.MAX_WORKERS;
+        int active = 0;
+        String instanceTypes = null;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--stats": statsFile = Paths.get(args[i + 1]); break;
+                case "--target-minutes": targetMinutes = Double.parseDouble(args[i + 1]); break;
+                case "--max-instances": maxInstances = Integer.parseInt(args[i + 1]); break;
+                case "--active": active = Integer.parseInt(args[i + 1]); break;
+                case "--instance-types": instanceTypes = args[i + 1]; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        CapacityPlanner planner = new CapacityPlanner(filterCatalog(instanceTypes));
+        if (statsFile != null) {
+            for (String line : Files.readAllLines(statsFile, StandardCharsets.UTF_8)) {
+                if (line.trim().isEmpty()) continue;
+                // Recorded stats only feed the model; running Workers are given by --active
+                WorkerStats workerStats = WorkerStats.parse(line);
+                planner.stats.put(workerStats.workerId(), workerStats);
+            }
+        }
+        System.out.print(planner.model().describe());
+        System.out.println(planner.plan(backlog, active, maxInstances - active, targetMinutes * 60).describe());
+    }
+
+    /**
+     * Latest stats of a Worker; they are cumulative, so a lost report costs nothing.
+     */
+    public void update(WorkerStats workerStats) {
+        synchronized (stats) {
+            stats.remove(workerStats.workerId()); // Moves it to the most recent end
+            stats.put(workerStats.workerId(), workerStats);
+        }
+        reportedAt.put(workerStats.workerId(), System.currentTimeMillis());
+        unsaved.set(true);
+    }
+
+    public void launched(WorkerSpec spec) {
+        lastLaunched = spec;
+    }
+
+    /**
+     * Restores the stats of earlier Workers saved by saveStats, so a new Manager starts with measured costs.
+     * They count as older than any Worker that already reported.
+     */
+    public void loadStats() {
+        try {
+            Path temp = Files.createTempFile("worker-stats", ".tsv");
+            Files.delete(temp);
+            Services.blobs().getFile(Utils.WORKER_STATS_KEY, temp);
+            List<String> lines = Files.readAllLines(temp, StandardCharsets.UTF_8);
+            Files.delete(temp);
+            synchronized (stats) {
+                Map<String, WorkerStats> reported = new LinkedHashMap<>(stats);
+                stats.clear();
+                for (String line : lines) {
+                    if (line.trim().isEmpty()) continue;
+                    WorkerStats workerStats = WorkerStats.parse(line);
+                    if (!reported.containsKey(workerStats.workerId())) stats.put(workerStats.workerId(), workerStats);
+                }
+                stats.putAll(reported);
+            }
+            System.out.println("Loaded stats of " + stats.size() + " workers from " + Services.blobs().uri(Utils.WORKER_STATS_KEY));
+        } catch (Exception e) {
+            // None saved yet
+        }
+    }
+
+    /**
+     * Uploads the stats if Workers reported since the last save. The Manager calls it periodically and on shutdown.
+     */
+    public void saveStats() {
+        if (!unsaved.getAndSet(false)) return;
+        // Oldest first, so a Manager that loads them keeps the most recent ones
+        String lines = statsSnapshot().stream().map(WorkerStats::encode).collect(Collectors.joining("\n", "", "\n"));
+        try {
+            Services.blobs().putBytes(Utils.WORKER_STATS_KEY, lines.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            unsaved.set(true);
+            System.err.println("Failed to save worker stats: " + e.getMessage());
+        }
+    }
+
+    public Model model() {
+        return new Model(statsSnapshot());
+    }
+
+    private List<WorkerStats> statsSnapshot() {
+        synchronized (stats) {
+            return new ArrayList<>(stats.values());
+        }
+    }
+
+    /**
+     * Plans new Workers for a backlog of remaining tasks per analysis type ("UNKNOWN" for tasks of unknown type).
+     *
+     * @param activeWorkers running Workers, including ones that have not reported yet
+     * @param maxNew        most Workers that may be started
+     */
+    public Plan plan(Map<String, Double> backlog, int activeWorkers, int maxNew, double targetSeconds) {
+        Model model = model();
+        double work = model.cpuSeconds(backlog);
+
+        // Reporting Workers count with what they measured, the others like the last Workers launched
+        long now = System.currentTimeMillis();
+        double activeCapacity = 0;
+        int reporting = 0;
+        for (WorkerStats workerStats : model.stats) {
+            Long at = reportedAt.get(workerStats.workerId());
+            if (at == null || now - at > ACTIVE_WORKER_MILLIS || reporting >= activeWorkers) continue;
+            activeCapacity += Math.min(workerStats.threads(), workerStats.vcpus()) * model.utilization;
+            reporting++;
+        }
+        activeCapacity += (activeWorkers - reporting) * capacityOf(lastLaunched, model);
+
+        double neededCapacity = work / Math.max(1, targetSeconds - Utils.WORKER_STARTUP_SECONDS);
+        List<Option> options = new ArrayList<>();
+        for (InstanceOption instance : catalog) {
+            Option option = size(instance, model);
+            if (option == null) continue;
+            double missing = neededCapacity - activeCapacity;
+            option.count = missing <= 0 ? 0 : (int) Math.ceil(missing / option.capacity);
+            option.meetsTarget = option.count <= maxNew;
+            option.count = Math.max(0, Math.min(option.count, maxNew));
+            double capacity = activeCapacity + option.count * option.capacity;
+            option.seconds = capacity > 0 ? (option.count > 0 ? Utils.WORKER_STARTUP_SECONDS : 0) + work / capacity : Double.POSITIVE_INFINITY;
+            option.cost = option.count * option.hourlyCost * Math.max(60, option.seconds) / 3600;
+            options.add(option);
+        }
+
+        Option chosen = null;
+        for (Option option : options) {
+            if (option.meetsTarget && (chosen == null || option.cost < chosen.cost
+                    || (option.cost == chosen.cost && option.count < chosen.count))) {
+                chosen = option;
+            }
+        }
+        if (chosen == null) {
+            for (Option option : options) {
+                if (chosen == null || option.seconds < chosen.seconds) chosen = option;
+            }
+        }
+        return new Plan(backlog, work, activeCapacity, targetSeconds, options, chosen);
+    }
+
+    // Threads and heap that fit the instance, or null if not even one parse thread fits
+    private Option size(InstanceOption instance, Model model) {
+        int usableMb = instance.memoryMb - OS_RESERVED_MB;
+        int threads = Math.min(instance.vcpus, (int) ((usableMb - model.heapBaseMb) / (model.heapPerThreadMb * HEAP_HEADROOM)));
+        if (threads < 1) return null;
+        int heapMb = (int) Math.ceil((model.heapBaseMb + threads * model.heapPerThreadMb * HEAP_HEADROOM) / 256) * 256;
+        heapMb = Math.min(usableMb, heapMb);
+
+        Option option = new Option(instance, new WorkerSpec(instance.name, heapMb, threads));
+        option.capacity = threads * model.utilization;
+        // Unlimited-mode credits for CPU above the baseline
+        double cpuShare = option.capacity / instance.vcpus;
+        option.hourlyCost = instance.hourlyPrice + Math.max(0, cpuShare - instance.baselineCpu) * instance.vcpus * SURPLUS_CREDIT_PRICE;
+        return option;
+    }
+
+    private double capacityOf(WorkerSpec spec, Model model) {
+        int vcpus = catalog.stream().filter(instance -> instance.name.equals(spec.instanceType()))
+                .mapToInt(instance -> instance.vcpus).findFirst().orElse(2);
+        int threads = spec.threads() > 0 ? Math.min(spec.threads(), vcpus) : vcpus;
+        return threads * model.utilization;
+    }
+
+    private static List<InstanceOption> filterCatalog(String instanceTypes) {
+        if (instanceTypes == null || instanceTypes.trim().isEmpty()) return CATALOG;
+        List<String> allowed = Arrays.asList(instanceTypes.split(","));
+        List<InstanceOption> filtered = CATALOG.stream().filter(instance -> allowed.contains(instance.name)).collect(Collectors.toList());
+        if (filtered.isEmpty()) throw new IllegalArgumentException("No known instance types in " + instanceTypes);
+        return filtered;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    public static class InstanceOption {
+        final String name;
+        final int vcpus;
+        final int memoryMb;
+        final double hourlyPrice;
+        final double baselineCpu; // Sustained share of each vCPU; 1.0 unless burstable
+
+        InstanceOption(String name, int vcpus, int memoryMb, double hourlyPrice, double baselineCpu) {
+            this.name = name;
+            this.vcpus = vcpus;
+            this.memoryMb = memoryMb;
+            this.hourlyPrice = hourlyPrice;
+            this.baselineCpu = baselineCpu;
+        }
+    }
+
+    /**
+     * Costs derived from the Worker stats, weighted by the sentences each Worker parsed.
+     */
+    public static class Model {
+        final Map<String, Double> cpuSecondsPerSentence = new TreeMap<>();
+        final Map<String, Double> sentencesPerDocument = new TreeMap<>();
+        final double utilization;
+        final double heapBaseMb;
+        final double heapPerThreadMb;
+        final int workers;
+        final List<WorkerStats> stats;
+
+        Model(List<WorkerStats> stats) {
+            this.stats = stats;
+            workers = stats.size();
+            Map<String, double[]> totals = new TreeMap<>(); // documents, sentences, CPU seconds
+            double parseSeconds = 0;
+            double threadSeconds = 0;
+            double heapBase = 0;
+            double heapPerThread = 0;
+            for (WorkerStats workerStats : stats) {
+                for (Map.Entry<String, WorkerStats.TypeCost> entry : workerStats.types().entrySet()) {
+                    WorkerStats.TypeCost cost = entry.getValue();
+                    if (cost.sentences == 0) continue;
+                    double[] total = totals.computeIfAbsent(entry.getKey(), k -> new double[3]);
+                    double cpuSeconds = workerStats.cpuSecondsPerSentence(cost) * cost.sentences;
+                    total[0] += cost.documents;
+                    total[1] += cost.sentences;
+                    total[2] += cpuSeconds;
+                    parseSeconds += cpuSeconds;
+                }
+                threadSeconds += workerStats.busyNanos() / 1e9 * Math.min(workerStats.threads(), workerStats.vcpus());
+                heapBase = Math.max(heapBase, workerStats.heapBase() / 1048576.0);
+                if (workerStats.heapPeak() > workerStats.heapBase() && workerStats.threads() > 0) {
+                    heapPerThread = Math.max(heapPerThread,
+                            (workerStats.heapPeak() - workerStats.heapBase()) / 1048576.0 / workerStats.threads());
+                }
+            }
+            totals.forEach((type, total) -> {
+                cpuSecondsPerSentence.put(type, total[2] / total[1]);
+                if (total[0] > 0) sentencesPerDocument.put(type, total[1] / total[0]);
+            });
+            utilization = threadSeconds > 0 ? Math.max(0.1, Math.min(1.0, parseSeconds / threadSeconds)) : DEFAULT_UTILIZATION;
+            heapBaseMb = heapBase > 0 ? heapBase : DEFAULT_HEAP_BASE_MB;
+            heapPerThreadMb = heapPerThread > 0 ? heapPerThread : DEFAULT_HEAP_PER_THREAD_MB;
+        }
+
+        /**
+         * CPU seconds to parse the backlog. Types without measurements cost the average of the measured ones.
+         */
+        double cpuSeconds(Map<String, Double> backlog) {
+            double averageCost = average(cpuSecondsPerSentence, DEFAULT_CPU_SECONDS_PER_SENTENCE);
+            double averageLength = average(sentencesPerDocument, DEFAULT_SENTENCES_PER_DOCUMENT);
+            double total = 0;
+            for (Map.Entry<String, Double> entry : backlog.entrySet()) {
+                total += entry.getValue()
+                        * sentencesPerDocument.getOrDefault(entry.getKey(), averageLength)
+                        * cpuSecondsPerSentence.getOrDefault(entry.getKey(), averageCost);
+            }
+            return total;
+        }
+
+        private static double average(Map<String, Double> values, double otherwise) {
+            return values.values().stream().mapToDouble(Double::doubleValue).average().orElse(otherwise);
+        }
+
+        String describe() {
+            StringBuilder out = new StringBuilder("Workload model from " + workers + " workers"
+                    + (workers == 0 ? " (defaults)" : "") + ":\n");
+            for (String type : cpuSecondsPerSentence.keySet()) {
+                out.append(String.format(Locale.ROOT, "  %-14s %8.3f CPU s/sentence %10.1f sentences/document%n", type,
+                        cpuSecondsPerSentence.get(type), sentencesPerDocument.getOrDefault(type, Double.NaN)));
+            }
+            out.append(String.format(Locale.ROOT, "  utilization %.2f, heap %.0f MB + %.0f MB per parse thread%n",
+                    utilization, heapBaseMb, heapPerThreadMb));
+            return out.toString();
+        }
+    }
+
+    private static class Option {
+        final InstanceOption instance;
+        final WorkerSpec spec;
+        double capacity; // CPU seconds of parsing per second, per Worker
+        double hourlyCost;
+        int count;
+        boolean meetsTarget;
+        double seconds;
+        double cost;
+
+        Option(InstanceOption instance, WorkerSpec spec) {
+            this.instance = instance;
+            this.spec = spec;
+        }
+    }
+
+    /**
+     * The chosen Workers to start (count may be 0) and the alternatives considered.
+     */
+    public static class Plan {
+        private final Map<String, Double> backlog;
+        private final double work;
+        private final double activeCapacity;
+        private final double targetSeconds;
+        private final List<Option> options;
+        private final Option chosen;
+
+        Plan(Map<String, Double> backlog, double work, double activeCapacity, double targetSeconds, List<Option> options, Option chosen) {
+            this.backlog = new LinkedHashMap<>(backlog);
+            this.work = work;
+            this.activeCapacity = activeCapacity;
+            this.targetSeconds = targetSeconds;
+            this.options = Collections.unmodifiableList(options);
+            this.chosen = chosen;
+        }
+
+        public int count() {
+            return chosen != null ? chosen.count : 0;
+        }
+
+        public WorkerSpec spec() {
+            return chosen != null ? chosen.spec : WorkerSpec.DEFAULT;
+        }
+
+        @Override
+        public String toString() {
+            if (chosen == null) return "Capacity plan: no instance type fits the workload";
+            return String.format(Locale.ROOT, "Capacity plan: %d x %s for %.0f CPU s of work, about %.1f min, $%s",
+                    chosen.count, chosen.spec, work, chosen.seconds / 60, format(chosen.cost));
+        }
+
+        String describe() {
+            StringBuilder out = new StringBuilder();
+            out.append("Backlog ").append(backlog).append(String.format(Locale.ROOT,
+                    ": %.0f CPU s of parsing, running workers do %.2f CPU s/s, target %.0f min%n", work, activeCapacity, targetSeconds / 60));
+            out.append(String.format(Locale.ROOT, "%-12s %7s %8s %8s %6s %9s %9s %7s%n",
+                    "Instance", "Threads", "Heap MB", "$/hour", "Count", "Minutes", "Cost $", "Target"));
+            for (Option option : options) {
+                out.append(String.format(Locale.ROOT, "%-12s %7d %8d %8.4f %6d %9.1f %9.2f %7s%s%n",
+                        option.instance.name, option.spec.threads(), option.spec.heapMb(), option.hourlyCost, option.count,
+                        option.seconds / 60, option.cost, option.meetsTarget ? "yes" : "no", option == chosen ? "  <- chosen" : ""));
+            }
+            out.append(this).append('\n');
+            return out.toString();
+        }
+    }
+}
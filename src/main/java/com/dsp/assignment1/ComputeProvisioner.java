@@ -0,0 +1,26 @@
+package com.dsp.assignment1;
+
+/**
+ * Starts and stops the Manager and Worker nodes.
+ * Implemented by EC2 (default) and by threads in the current JVM for single-node runs.
+ */
+public interface ComputeProvisioner {
+
+    boolean isManagerActive();
+
+    void startManager();
+
+    int getActiveWorkerCount();
+
+    /**
+     * Starts count Workers shaped like spec, as far as the nodes can be.
+     */
+    void startWorkers(int count, WorkerSpec spec);
+
+    void terminateWorkers();
+
+    /**
+     * Terminates the node the Manager runs on.
+     */
+    void terminateSelf();
+}
@@ -0,0 +1,175 @@
+package com.dsp.assignment1;
+
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.*;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class Ec2ComputeProvisioner implements ComputeProvisioner {
+    public static final String MANAGER_AMI_ID = "ami-023186f8ad1eccd14";
+    public static final String WORKER_AMI_ID = "ami-0ed259eaabf1ff80d";
+
+    private final Ec2Client ec2;
+
+    public Ec2ComputeProvisioner(Region region) {
+        this.ec2 = Ec2Client.builder().region(region).build();
+    }
+
+    @Override
+    public boolean isManagerActive() {
+        return !describeActiveInstances(Utils.TAG_VALUE_MANAGER).isEmpty();
+    }
+
+    @Override
+    public void startManager() {
+        // User Data script to start the Manager
+        // Using baked-in JAR at /home/ec2-user/manager.jar
+        String userDataScript = "#!/bin/bash\n" +
+                // "aws s3 cp s3://" + Utils.S3_BUCKET_NAME + "/manager.jar /home/ec2-user/manager.jar\n" + // Skip download
+                // Restarted after a crash; it recovers its jobs from the journal
+                "until java -XX:+ExitOnOutOfMemoryError" + flightRecordingOption() +
+                " -Dmanager.journal=/home/ec2-user/journal -jar /home/ec2-user/manager.jar; do sleep 5; done\n";
+
+        runInstances(MANAGER_AMI_ID, Utils.TAG_VALUE_MANAGER, InstanceType.T3_LARGE, 1, userDataScript);
+        System.out.println("Manager instance launched.");
+    }
+
+    // Flight recording stays off unless the launching JVM records too: the LocalApplication passes
+    // -Djfr.uploadMinutes on to the Manager, and the Manager on to its Workers
+    private static String flightRecordingOption() {
+        Long minutes = Long.getLong("jfr.uploadMinutes");
+        return minutes != null && minutes > 0 ? " -Djfr.uploadMinutes=" + minutes : "";
+    }
+
+    @Override
+    public int getActiveWorkerCount() {
+        return describeActiveInstances(Utils.TAG_VALUE_WORKER).size();
+    }
+
+    @Override
+    public void startWorkers(int count, WorkerSpec spec) {
+        // User Data for Worker
+        String userDataScript = "#!/bin/bash\n" +
+        // 1. Create directory for models
+        "mkdir -p /home/ec2-user/stanford\n" +
+        
+        // 2. Download the Model File (One time download)
+        "aws s3 cp s3://" + Utils.S3_BUCKET_NAME + "/stanford/englishPCFG.ser.gz /home/ec2-user/stanford/englishPCFG.ser.gz\n" +
+        
+        // 3. Download the Tiny Worker JAR
+        // "aws s3 cp s3://" + Utils.S3_BUCKET_NAME + "/worker.jar /home/ec2-user/worker.jar\n" + 
+        
+        // 4. Run Java with the heap and parse threads the Manager sized for the instance type
+        "java -Xmx" + spec.heapMb() + "m" + (spec.threads() > 0 ? " -Dworker.threads=" + spec.threads() : "") +
+        " -Dworker.instanceType=" + spec.instanceType() + flightRecordingOption() + " -jar /home/ec2-user/worker.jar\n";
+
+        try {
+            runInstances(WORKER_AMI_ID, Utils.TAG_VALUE_WORKER, InstanceType.fromValue(spec.instanceType()), count, userDataScript);
+        } catch (Exception e) {
+            System.err.println("Failed to start workers: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void terminateWorkers() {
+        List<String> instanceIds = describeActiveInstances(Utils.TAG_VALUE_WORKER).stream()
+                .map(Instance::instanceId)
+                .collect(Collectors.toList());
+
+        if (!instanceIds.isEmpty()) {
+            ec2.terminateInstances(TerminateInstancesRequest.builder().instanceIds(instanceIds).build());
+            System.out.println("Terminated workers: " + instanceIds);
+        }
+    }
+
+    @Override
+    public void terminateSelf() {
+        String myInstanceId = getMyInstanceId();
+        if (myInstanceId != null) {
+            try {
+                ec2.terminateInstances(TerminateInstancesRequest.builder()
+                        .instanceIds(myInstanceId)
+                        .build());
+                System.out.println("Termination request sent for self: " + myInstanceId);
+            } catch (Exception e) {
+                System.err.println("Failed to terminate self: " + e.getMessage());
+            }
+        } else {
+            System.out.println("Could not determine my instance ID. Cannot terminate self.");
+        }
+    }
+
+    private List<Instance> describeActiveInstances(String role) {
+        Filter tagFilter = Filter.builder().name("tag:" + Utils.TAG_KEY_ROLE).values(role).build();
+        Filter stateFilter = Filter.builder().name("instance-state-name").values("running", "pending").build();
+
+        DescribeInstancesResponse response = ec2.describeInstances(DescribeInstancesRequest.builder()
+                .filters(tagFilter, stateFilter)
+                .build());
+
+        return response.reservations().stream()
+                .flatMap(r -> r.instances().stream())
+                .collect(Collectors.toList());
+    }
+
+    private void runInstances(String amiId, String role, InstanceType instanceType, int count, String userDataScript) {
+        String userDataEncoded = Base64.getEncoder().encodeToString(userDataScript.getBytes());
+
+        TagSpecification tagSpec = TagSpecification.builder()
+                .resourceType(ResourceType.INSTANCE)
+                .tags(Tag.builder().key(Utils.TAG_KEY_ROLE).value(role).build())
+                .build();
+
+        RunInstancesRequest runRequest = RunInstancesRequest.builder()
+                .imageId(amiId)
+                .instanceType(instanceType)
+                .keyName("vockey")
+                .maxCount(count)
+                .minCount(count)
+                .userData(userDataEncoded)
+                .tagSpecifications(tagSpec)
+                .iamInstanceProfile(IamInstanceProfileSpecification.builder().name("LabInstanceProfile").build())
+                .build();
+
+        ec2.runInstances(runRequest);
+    }
+
+    private static String getMyInstanceId() {
+        try {
+            // 1. Get Token (IMDSv2)
+            URL tokenUrl = new URL("http://169.254.169.254/latest/api/token");
+            HttpURLConnection tokenConn = (HttpURLConnection) tokenUrl.openConnection();
+            tokenConn.setRequestMethod("PUT");
+            tokenConn.setRequestProperty("X-aws-ec2-metadata-token-ttl-seconds", "21600");
+            tokenConn.setConnectTimeout(1000);
+            
+            String token;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(tokenConn.getInputStream()))) {
+                token = reader.readLine();
+            }
+    
+            // 2. Get Instance ID using Token
+            URL url = new URL("http://169.254.169.254/latest/meta-data/instance-id");
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("GET");
+            connection.setRequestProperty("X-aws-ec2-metadata-token", token); // Pass the token
+            connection.setConnectTimeout(1000);
+    
+            if (connection.getResponseCode() == 200) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
+                    return reader.readLine();
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Could not retrieve Instance ID: " + e.getMessage());
+        }
+        return null;
+    }
+}
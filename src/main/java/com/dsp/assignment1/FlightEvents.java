@@ -0,0 +1,207 @@
+package com.dsp.assignment1;
+
+/**
+ * Custom Java Flight Recorder events. Without a running recording (see FlightRecording) no JFR event is
+ * created, and hot paths check isEnabled() before creating the wrapper too; stack traces are off so
+ * per-sentence events stay cheap when recording. The JFR classes are in JfrEvents and only used where the
+ * jdk.jfr module exists; on a runtime built without it, begin and commit do nothing.
+ */
+public class FlightEvents {
+    static final String PARSE = "com.dsp.assignment1.SentenceParse";
+    static final String DOWNLOAD = "com.dsp.assignment1.DocumentDownload";
+    static final String UPLOAD = "com.dsp.assignment1.OutputUpload";
+    static final String QUEUE = "com.dsp.assignment1.QueueOperation";
+    static final String JOB_DISPATCH = "com.dsp.assignment1.JobDispatch";
+    static final String JOB_SUMMARY = "com.dsp.assignment1.JobSummary";
+    static final String JOB_COMPLETED = "com.dsp.assignment1.JobCompleted";
+
+    static final boolean AVAILABLE = jfrAvailable();
+
+    private static boolean jfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            JfrEvents.watchRecordings();
+            return true;
+        } catch (ClassNotFoundException | LinkageError | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * True while a recording runs in this JVM, whether FlightRecording, jcmd or -XX:StartFlightRecording started it.
+     */
+    static boolean isEnabled() {
+        return AVAILABLE && JfrEvents.recording();
+    }
+
+    /**
+     * The fields are copied to the JFR event on commit.
+     */
+    abstract static class Timed {
+        private final Object event = isEnabled() ? newEvent() : null;
+
+        abstract Object newEvent();
+
+        abstract void copyTo(Object event);
+
+        public void begin() {
+            if (event != null) JfrEvents.begin(event);
+        }
+
+        public void commit() {
+            if (event == null) return;
+            copyTo(event);
+            JfrEvents.commit(event);
+        }
+    }
+
+    public static class SentenceParse extends Timed {
+        String task;
+        String analysisType;
+        int tokens;
+        String outcome; // PARSED, SKIPPED (longer than 80 tokens) or FAILED
+
+        @Override
+        Object newEvent() {
+            return new JfrEvents.SentenceParse();
+        }
+
+        @Override
+        void copyTo(Object event) {
+            JfrEvents.SentenceParse e = (JfrEvents.SentenceParse) event;
+            e.task = task;
+            e.analysisType = analysisType;
+            e.tokens = tokens;
+            e.outcome = outcome;
+        }
+    }
+
+    public static class DocumentDownload extends Timed {
+        String task;
+        String url;
+        long bytes;
+        boolean success;
+
+        @Override
+        Object newEvent() {
+            return new JfrEvents.DocumentDownload();
+        }
+
+        @Override
+        void copyTo(Object event) {
+            JfrEvents.DocumentDownload e = (JfrEvents.DocumentDownload) event;
+            e.task = task;
+            e.url = url;
+            e.bytes = bytes;
+            e.success = success;
+        }
+    }
+
+    public static class OutputUpload extends Timed {
+        String task;
+        String key;
+        long bytes;
+
+        @Override
+        Object newEvent() {
+            return new JfrEvents.OutputUpload();
+        }
+
+        @Override
+        void copyTo(Object event) {
+            JfrEvents.OutputUpload e = (JfrEvents.OutputUpload) event;
+            e.task = task;
+            e.key = key;
+            e.bytes = bytes;
+        }
+    }
+
+    public static class QueueOperation extends Timed {
+        String operation;
+        String queue;
+        int messages;
+        long bytes;
+
+        @Override
+        Object newEvent() {
+            return new JfrEvents.QueueOperation();
+        }
+
+        @Override
+        void copyTo(Object event) {
+            JfrEvents.QueueOperation e = (JfrEvents.QueueOperation) event;
+            e.operation = operation;
+            e.queue = queue;
+            e.messages = messages;
+            e.bytes = bytes;
+        }
+    }
+
+    public static class JobDispatch extends Timed {
+        String jobId;
+        String inputKey;
+        int tasks;
+
+        @Override
+        Object newEvent() {
+            return new JfrEvents.JobDispatch();
+        }
+
+        @Override
+        void copyTo(Object event) {
+            JfrEvents.JobDispatch e = (JfrEvents.JobDispatch) event;
+            e.jobId = jobId;
+            e.inputKey = inputKey;
+            e.tasks = tasks;
+        }
+    }
+
+    public static class JobSummary extends Timed {
+        String jobId;
+        int tasks;
+        long bytes;
+
+        @Override
+        Object newEvent() {
+            return new JfrEvents.JobSummary();
+        }
+
+        @Override
+        void copyTo(Object event) {
+            JfrEvents.JobSummary e = (JfrEvents.JobSummary) event;
+            e.jobId = jobId;
+            e.tasks = tasks;
+            e.bytes = bytes;
+        }
+    }
+
+    public static class JobCompleted extends Timed {
+        String jobId;
+        int tasks;
+        int failedTasks;
+
+        @Override
+        Object newEvent() {
+            return new JfrEvents.JobCompleted();
+        }
+
+        @Override
+        void copyTo(Object event) {
+            JfrEvents.JobCompleted e = (JfrEvents.JobCompleted) event;
+            e.jobId = jobId;
+            e.tasks = tasks;
+            e.failedTasks = failedTasks;
+        }
+    }
+
+    /**
+     * Starts timing a queue round trip; the caller fills in messages and bytes and commits.
+     */
+    static QueueOperation beginQueueOperation(String operation, String queueUrl) {
+        QueueOperation event = new QueueOperation();
+        event.operation = operation;
+        event.queue = queueUrl.substring(queueUrl.lastIndexOf('/') + 1);
+        event.begin();
+        return event;
+    }
+}
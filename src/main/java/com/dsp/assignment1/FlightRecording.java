@@ -0,0 +1,95 @@
+package com.dsp.assignment1;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Continuous Flight Recorder recording, configured with system properties at startup:
+ *   -Djfr.file=PATH               dump the recording to PATH on exit
+ *   -Djfr.uploadMinutes=N         upload a snapshot to jfr/{component}-{host}.jfr every N minutes (and on Manager shutdown)
+ *   -Djfr.settings=NAME|PATH      "default" (about 1% overhead, the default), "profile", or a .jfc file
+ *   -Djfr.maxAgeMinutes=N         data kept on disk, default 60
+ *   -Djfr.parseThresholdMillis=N  only record sentence parses slower than N ms, default 0 (all)
+ * Recording starts if jfr.file or jfr.uploadMinutes is set and the JVM has jdk.jfr. JfrReport summarizes the resulting file.
+ */
+public class FlightRecording {
+    private static Recording recording;
+    private static String uploadKey;
+
+    public static synchronized void startFromProperties(String component) {
+        String file = System.getProperty("jfr.file");
+        String uploadMinutes = System.getProperty("jfr.uploadMinutes");
+        if ((file == null && uploadMinutes == null) || recording != null) return;
+        if (!FlightEvents.AVAILABLE) {
+            System.err.println("Flight recording needs the jdk.jfr module; not recording");
+            return;
+        }
+
+        String settings = System.getProperty("jfr.settings", "default");
+        try {
+            Configuration configuration = settings.endsWith(".jfc")
+                    ? Configuration.create(Paths.get(settings))
+                    : Configuration.getConfiguration(settings);
+            recording = new Recording(configuration);
+            recording.setName("text-parser-" + component);
+            recording.setToDisk(true);
+            recording.setMaxAge(Duration.ofMinutes(Long.getLong("jfr.maxAgeMinutes", 60)));
+            recording.enable(FlightEvents.PARSE)
+                    .withThreshold(Duration.ofMillis(Long.getLong("jfr.parseThresholdMillis", 0)));
+            if (file != null) {
+                recording.setDestination(Paths.get(file));
+                recording.setDumpOnExit(true);
+            }
+            recording.start();
+        } catch (Exception e) {
+            System.err.println("Failed to start flight recording (" + settings + "): " + e.getMessage());
+            recording = null;
+            return;
+        }
+        System.out.println("Flight recording started with settings " + settings + (file != null ? ", dumped to " + file + " on exit" : ""));
+
+        if (uploadMinutes != null) {
+            uploadKey = "jfr/" + component + "-" + hostName() + ".jfr";
+            long minutes = Long.parseLong(uploadMinutes);
+            ScheduledExecutorService uploader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "jfr-upload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            uploader.scheduleAtFixedRate(FlightRecording::uploadSnapshot, minutes, minutes, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Uploads the data recorded so far, replacing the previous snapshot. No-op unless uploads are enabled.
+     */
+    public static synchronized void uploadSnapshot() {
+        if (recording == null || uploadKey == null) return;
+        try {
+            Path temp = Files.createTempFile("recording", ".jfr");
+            recording.dump(temp);
+            Services.blobs().putFile(uploadKey, temp);
+            Files.delete(temp);
+            System.out.println("Uploaded flight recording to " + Services.blobs().uri(uploadKey));
+        } catch (Exception e) {
+            System.err.println("Failed to upload flight recording: " + e.getMessage());
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.dsp.assignment1;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process stand-in for SQS. Keeps SQS semantics the components rely on:
+ * long polling, and received messages reappearing after their visibility timeout unless deleted.
+ */
+public class InMemoryQueueService implements QueueService {
+    private static final String URL_PREFIX = "local://queue/";
+    private static final int DEFAULT_VISIBILITY_TIMEOUT_SECONDS = 30; // Same default as SQS
+
+    private final Map<String, LocalQueue> queues = new ConcurrentHashMap<>();
+
+    @Override
+    public String createQueue(String queueName) {
+        queues.computeIfAbsent(queueName, name -> new LocalQueue());
+        return URL_PREFIX + queueName;
+    }
+
+    @Override
+    public String getQueueUrl(String queueName) {
+        return queues.containsKey(queueName) ? URL_PREFIX + queueName : null;
+    }
+
+    @Override
+    public void sendMessage(String queueUrl, String body) {
+        queue(queueUrl).ready.add(new Entry(body));
+    }
+
+    @Override
+    public List<QueueMessage> receiveMessages(String queueUrl, int maxMessages, int waitTimeSeconds, int visibilityTimeoutSeconds) {
+        LocalQueue queue = queue(queueUrl);
+        long visibilityMillis = TimeUnit.SECONDS.toMillis(
+                visibilityTimeoutSeconds > 0 ? visibilityTimeoutSeconds : DEFAULT_VISIBILITY_TIMEOUT_SECONDS);
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(waitTimeSeconds);
+
+        List<QueueMessage> received = new ArrayList<>();
+        try {
+            // Wait in short slices so a deleted queue releases its pollers promptly
+            while (received.isEmpty() && !queue.deleted) {
+                queue.requeueExpired();
+                Entry first = queue.ready.poll(Math.max(0, Math.min(100, deadline - System.currentTimeMillis())), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    received.add(queue.markInFlight(first, visibilityMillis));
+                    Entry next;
+                    while (received.size() < maxMessages && (next = queue.ready.poll()) != null) {
+                        received.add(queue.markInFlight(next, visibilityMillis));
+                    }
+                } else if (System.currentTimeMillis() >= deadline) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return received;
+    }
+
+    @Override
+    public void deleteMessage(String queueUrl, String receiptHandle) {
+        queue(queueUrl).inFlight.remove(receiptHandle);
+    }
+
+    @Override
+    public void deleteQueue(String queueUrl) {
+        LocalQueue queue = queues.remove(queueName(queueUrl));
+        if (queue != null) {
+            queue.deleted = true;
+        }
+    }
+
+    @Override
+    public int getApproximateMessageCount(String queueUrl) {
+        return queue(queueUrl).ready.size();
+    }
+
+    @Override
+    public int getApproximateInFlightCount(String queueUrl) {
+        return queue(queueUrl).inFlight.size();
+    }
+
+    private LocalQueue queue(String queueUrl) {
+        LocalQueue queue = queues.get(queueName(queueUrl));
+        if (queue == null) {
+            throw new IllegalStateException("Queue does not exist: " + queueUrl);
+        }
+        return queue;
+    }
+
+    private static String queueName(String queueUrl) {
+        return queueUrl.substring(URL_PREFIX.length());
+    }
+
+    private static class Entry {
+        final String body;
+        volatile long invisibleUntil;
+
+        Entry(String body) {
+            this.body = body;
+        }
+    }
+
+    private static class LocalQueue {
+        final LinkedBlockingQueue<Entry> ready = new LinkedBlockingQueue<>();
+        final Map<String, Entry> inFlight = new ConcurrentHashMap<>();
+        volatile boolean deleted = false;
+
+        QueueMessage markInFlight(Entry entry, long visibilityMillis) {
+            String receiptHandle = UUID.randomUUID().toString();
+            entry.invisibleUntil = System.currentTimeMillis() + visibilityMillis;
+            inFlight.put(receiptHandle, entry);
+            return new QueueMessage(entry.body, receiptHandle);
+        }
+
+        void requeueExpired() {
+            long now = System.currentTimeMillis();
+            Iterator<Map.Entry<String, Entry>> it = inFlight.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> e = it.next();
+                // remove() decides the race between concurrent pollers requeueing the same message
+                if (e.getValue().invisibleUntil <= now && inFlight.remove(e.getKey(), e.getValue())) {
+                    ready.add(e.getValue());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.dsp.assignment1;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+
+/**
+ * The Flight Recorder event classes behind FlightEvents. Only loaded where jdk.jfr exists (FlightEvents.AVAILABLE).
+ */
+class JfrEvents {
+    private static volatile boolean recording;
+
+    @Name(FlightEvents.PARSE)
+    @Label("Sentence Parse")
+    @Description("Parsing and formatting of one sentence")
+    @Category({"Text Parser", "Worker"})
+    @StackTrace(false)
+    public static class SentenceParse extends Event {
+        @Label("Task")
+        String task;
+        @Label("Analysis Type")
+        String analysisType;
+        @Label("Tokens")
+        int tokens;
+        @Label("Outcome")
+        @Description("PARSED, SKIPPED (longer than 80 tokens) or FAILED")
+        String outcome;
+    }
+
+    @Name(FlightEvents.DOWNLOAD)
+    @Label("Document Download")
+    @Category({"Text Parser", "Worker"})
+    @StackTrace(false)
+    public static class DocumentDownload extends Event {
+        @Label("Task")
+        String task;
+        @Label("URL")
+        String url;
+        @Label("Size")
+        @DataAmount
+        long bytes;
+        @Label("Success")
+        boolean success;
+    }
+
+    @Name(FlightEvents.UPLOAD)
+    @Label("Output Upload")
+    @Category({"Text Parser", "Worker"})
+    @StackTrace(false)
+    public static class OutputUpload extends Event {
+        @Label("Task")
+        String task;
+        @Label("Key")
+        String key;
+        @Label("Size")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name(FlightEvents.QUEUE)
+    @Label("Queue Operation")
+    @Description("One SQS round trip; receives include the long-poll wait")
+    @Category({"Text Parser", "Worker"})
+    @StackTrace(false)
+    public static class QueueOperation extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Queue")
+        String queue;
+        @Label("Messages")
+        int messages;
+        @Label("Size")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name(FlightEvents.JOB_DISPATCH)
+    @Label("Job Dispatch")
+    @Description("From receiving a job to sending its last worker task")
+    @Category({"Text Parser", "Manager"})
+    @StackTrace(false)
+    public static class JobDispatch extends Event {
+        @Label("Job")
+        String jobId;
+        @Label("Input Key")
+        String inputKey;
+        @Label("Tasks")
+        int tasks;
+    }
+
+    @Name(FlightEvents.JOB_SUMMARY)
+    @Label("Job Summary")
+    @Description("Building and uploading the summary of a finished job")
+    @Category({"Text Parser", "Manager"})
+    @StackTrace(false)
+    public static class JobSummary extends Event {
+        @Label("Job")
+        String jobId;
+        @Label("Tasks")
+        int tasks;
+        @Label("Summary Size")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name(FlightEvents.JOB_COMPLETED)
+    @Label("Job Completed")
+    @Description("Whole job, from registering its tasks to notifying the local application")
+    @Category({"Text Parser", "Manager"})
+    @StackTrace(false)
+    public static class JobCompleted extends Event {
+        @Label("Job")
+        String jobId;
+        @Label("Tasks")
+        int tasks;
+        @Label("Failed Tasks")
+        int failedTasks;
+    }
+
+    static boolean recording() {
+        return recording;
+    }
+
+    // Tracks whether any recording is running, without initializing Flight Recorder when none was started
+    static void watchRecordings() {
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recorderInitialized(FlightRecorder recorder) {
+                update(recorder);
+            }
+
+            @Override
+            public void recordingStateChanged(Recording changed) {
+                update(FlightRecorder.getFlightRecorder());
+            }
+        });
+    }
+
+    private static void update(FlightRecorder recorder) {
+        recording = recorder.getRecordings().stream().anyMatch(r -> r.getState() == RecordingState.RUNNING);
+    }
+
+    static void begin(Object event) {
+        ((Event) event).begin();
+    }
+
+    static void commit(Object event) {
+        ((Event) event).commit();
+    }
+}
@@ -0,0 +1,257 @@
+package com.dsp.assignment1;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Offline hotspot report for a flight recording (see FlightRecording):
+ * latency per custom event, sentence parses by analysis type and length, the slowest parses and downloads,
+ * queue round trips, GC pauses and the hottest methods from execution samples.
+ *
+ * Usage: java -cp yourjar.jar com.dsp.assignment1.JfrReport recording.jfr [top]
+ */
+public class JfrReport {
+    private static final int TOKEN_BUCKET = 10;
+
+    // Per event type
+    private final Map<String, List<Long>> durations = new TreeMap<>();
+    // Sentence parses
+    private final Map<String, List<Long>> parseByType = new TreeMap<>();
+    private final Map<String, Long> tokensByType = new HashMap<>();
+    private final Map<Integer, List<Long>> parseByLength = new TreeMap<>();
+    private final Map<String, Integer> parseOutcomes = new TreeMap<>();
+    private final List<RecordedEvent> slowestParses = new ArrayList<>();
+    private final List<RecordedEvent> slowestDownloads = new ArrayList<>();
+    private final Map<String, List<Long>> queueOperations = new TreeMap<>();
+    // Execution samples
+    private final Map<String, Integer> topFrames = new HashMap<>();
+    private final Map<String, Integer> applicationFrames = new HashMap<>();
+    private int executionSamples;
+    private long gcPauses;
+    private long gcPauseNanos;
+    private Instant first;
+    private Instant last;
+
+    private final int top;
+
+    JfrReport(int top) {
+        this.top = top;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java -cp yourjar.jar com.dsp.assignment1.JfrReport recording.jfr [top]");
+            System.exit(1);
+        }
+        Path file = Paths.get(args[0]);
+        JfrReport report = new JfrReport(args.length > 1 ? Integer.parseInt(args[1]) : 10);
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                report.add(recording.readEvent());
+            }
+        }
+        System.out.print(report.render(file.toString()));
+    }
+
+    void add(RecordedEvent event) {
+        String name = event.getEventType().getName();
+        Instant end = event.getEndTime();
+        if (first == null || event.getStartTime().isBefore(first)) first = event.getStartTime();
+        if (last == null || end.isAfter(last)) last = end;
+
+        long nanos = event.getDuration().toNanos();
+        switch (name) {
+            case FlightEvents.PARSE:
+                String type = event.getString("analysisType");
+                String outcome = event.getString("outcome");
+                parseOutcomes.merge(outcome, 1, Integer::sum);
+                if ("SKIPPED".equals(outcome)) return; // Not parsed, zero duration
+                if ("PARSED".equals(outcome)) {
+                    parseByType.computeIfAbsent(type, k -> new ArrayList<>()).add(nanos);
+                    tokensByType.merge(type, (long) event.getInt("tokens"), Long::sum);
+                    int bucket = (event.getInt("tokens") - 1) / TOKEN_BUCKET;
+                    parseByLength.computeIfAbsent(bucket, k -> new ArrayList<>()).add(nanos);
+                    keepSlowest(slowestParses, event);
+                }
+                break;
+            case FlightEvents.DOWNLOAD:
+                keepSlowest(slowestDownloads, event);
+                break;
+            case FlightEvents.QUEUE:
+                // Empty long polls only measure the wait time, not SQS
+                if (!"receive".equals(event.getString("operation")) || event.getInt("messages") > 0) {
+                    queueOperations.computeIfAbsent(event.getString("operation") + " " + event.getString("queue"),
+                            k -> new ArrayList<>()).add(nanos);
+                }
+                break;
+            case "jdk.ExecutionSample":
+                addExecutionSample(event.getStackTrace());
+                return;
+            case "jdk.GarbageCollection":
+                gcPauses++;
+                gcPauseNanos += event.getDuration("sumOfPauses").toNanos();
+                return;
+            default:
+                if (!name.startsWith("com.dsp.assignment1.")) return;
+        }
+        durations.computeIfAbsent(event.getEventType().getLabel(), k -> new ArrayList<>()).add(nanos);
+    }
+
+    private void addExecutionSample(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) return;
+        executionSamples++;
+        topFrames.merge(frameName(stackTrace.getFrames().get(0)), 1, Integer::sum);
+        // First frame in our code or the parser, i.e. what the time is charged to from our point of view
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String frameName = frameName(frame);
+            if (frameName.startsWith("com.dsp.") || frameName.startsWith("edu.stanford.")) {
+                applicationFrames.merge(frameName, 1, Integer::sum);
+                break;
+            }
+        }
+    }
+
+    private static String frameName(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+
+    private void keepSlowest(List<RecordedEvent> slowest, RecordedEvent event) {
+        slowest.add(event);
+        if (slowest.size() > top * 4) {
+            trimSlowest(slowest);
+        }
+    }
+
+    private void trimSlowest(List<RecordedEvent> slowest) {
+        slowest.sort(Comparator.comparing(RecordedEvent::getDuration, Comparator.reverseOrder()));
+        while (slowest.size() > top) {
+            slowest.remove(slowest.size() - 1);
+        }
+    }
+
+    String render(String source) {
+        StringBuilder out = new StringBuilder();
+        out.append("Flight recording report: ").append(source).append('\n');
+        if (first != null) {
+            out.append("Span: ").append(first).append(" - ").append(last)
+                    .append(" (").append(Duration.between(first, last).getSeconds()).append(" s)\n");
+        }
+
+        section(out, "Event latency (ms)");
+        row(out, "Event", "Count", "Mean", "p50", "p95", "p99", "Max");
+        durations.forEach((label, values) -> latencyRow(out, label, values));
+
+        section(out, "Sentence parses by analysis type (ms)");
+        row(out, "Type", "Count", "Mean", "p50", "p95", "p99", "Max", "Tokens/s");
+        parseByType.forEach((type, values) -> {
+            List<String> cells = latencyCells(type, values);
+            long totalNanos = values.stream().mapToLong(Long::longValue).sum();
+            cells.add(format(tokensByType.get(type) / (totalNanos / 1e9)));
+            row(out, cells.toArray(new String[0]));
+        });
+        out.append("Outcomes: ").append(parseOutcomes).append('\n');
+
+        section(out, "Sentence parses by length (ms)");
+        row(out, "Tokens", "Count", "Mean", "p50", "p95", "p99", "Max");
+        parseByLength.forEach((bucket, values) ->
+                latencyRow(out, (bucket * TOKEN_BUCKET + 1) + "-" + (bucket + 1) * TOKEN_BUCKET, values));
+
+        trimSlowest(slowestParses);
+        section(out, "Slowest sentence parses");
+        row(out, "Task", "ms", "Tokens", "Type");
+        for (RecordedEvent e : slowestParses) {
+            row(out, e.getString("task"), millis(e.getDuration().toNanos()), String.valueOf(e.getInt("tokens")), e.getString("analysisType"));
+        }
+
+        trimSlowest(slowestDownloads);
+        section(out, "Slowest document downloads");
+        row(out, "URL", "ms", "Bytes", "OK");
+        for (RecordedEvent e : slowestDownloads) {
+            row(out, e.getString("url"), millis(e.getDuration().toNanos()), String.valueOf(e.getLong("bytes")), String.valueOf(e.getBoolean("success")));
+        }
+
+        section(out, "Queue round trips, excluding empty polls (ms)");
+        row(out, "Operation", "Count", "Mean", "p50", "p95", "p99", "Max");
+        queueOperations.forEach((operation, values) -> latencyRow(out, operation, values));
+
+        section(out, "GC");
+        out.append(gcPauses).append(" collections, ").append(millis(gcPauseNanos)).append(" ms paused\n");
+
+        section(out, "Hot methods (" + executionSamples + " execution samples)");
+        if (executionSamples == 0) {
+            out.append("No execution samples; record with -Djfr.settings=profile or default\n");
+        } else {
+            out.append("Top frame:\n");
+            hotMethods(out, topFrames);
+            out.append("First application or parser frame:\n");
+            hotMethods(out, applicationFrames);
+        }
+        return out.toString();
+    }
+
+    private void hotMethods(StringBuilder out, Map<String, Integer> samples) {
+        List<Map.Entry<String, Integer>> sorted = samples.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(top)
+                .collect(Collectors.toList());
+        for (Map.Entry<String, Integer> e : sorted) {
+            out.append(String.format(Locale.ROOT, "  %5.1f%%  %s%n", 100.0 * e.getValue() / executionSamples, e.getKey()));
+        }
+    }
+
+    private static void section(StringBuilder out, String title) {
+        out.append('\n').append("== ").append(title).append(" ==\n");
+    }
+
+    private static void latencyRow(StringBuilder out, String label, List<Long> values) {
+        row(out, latencyCells(label, values).toArray(new String[0]));
+    }
+
+    private static List<String> latencyCells(String label, List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        long total = sorted.stream().mapToLong(Long::longValue).sum();
+        List<String> cells = new ArrayList<>();
+        cells.add(label);
+        cells.add(String.valueOf(sorted.size()));
+        cells.add(millis(total / sorted.size()));
+        cells.add(millis(Utils.percentile(sorted, 50)));
+        cells.add(millis(Utils.percentile(sorted, 95)));
+        cells.add(millis(Utils.percentile(sorted, 99)));
+        cells.add(millis(sorted.get(sorted.size() - 1)));
+        return cells;
+    }
+
+    private static void row(StringBuilder out, String... cells) {
+        out.append(String.format(Locale.ROOT, "%-40s", cells[0]));
+        for (int i = 1; i < cells.length; i++) {
+            out.append(String.format(Locale.ROOT, " %10s", cells[i]));
+        }
+        out.append('\n');
+    }
+
+    private static String millis(long nanos) {
+        return format(nanos / 1e6);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+}
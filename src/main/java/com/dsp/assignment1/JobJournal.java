@@ -0,0 +1,201 @@
+package com.dsp.assignment1;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Append-only log of the Manager's job state, one tab-separated record per line:
+ *   CREATE \t jobId \t inputFileKey \t replyQueueUrl \t n \t totalTasks \t TRACE
+ *   DISPATCHED \t jobId \t taskIndex,taskIndex,...
+ *   RESULT \t jobId \t taskIndex \t ANALYSIS_TYPE \t INPUT_URL \t OUTPUT \t TRACE
+ *   FINISHED \t jobId
+ *   TERMINATE
+ * Records are flushed as they are written, so they survive a Manager process crash. The snapshot compacts
+ * the log (drops finished jobs), fsyncs it and uploads it to the blob store, for a Manager on a new instance.
+ */
+public class JobJournal {
+    private static final String FILE_NAME = "journal.log";
+
+    private final Path file;
+    private final Object uploadLock = new Object(); // Keeps a slow snapshot upload from overwriting clear()
+    private BufferedWriter writer;
+    private boolean dirty;
+    private boolean restored;
+
+    private JobJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * A journal that records nothing (single-node runs and benchmarks).
+     */
+    public static JobJournal disabled() {
+        return new JobJournal(null);
+    }
+
+    /**
+     * Opens the journal in dir, restoring it from the last snapshot if there is no local copy.
+     */
+    public static JobJournal open(Path dir) {
+        JobJournal journal = new JobJournal(dir.resolve(FILE_NAME));
+        try {
+            Files.createDirectories(dir);
+            if (!Files.exists(journal.file)) {
+                try {
+                    Services.blobs().getFile(Utils.JOURNAL_SNAPSHOT_KEY, journal.file);
+                    journal.restored = true;
+                    System.out.println("Restored job journal from " + Services.blobs().uri(Utils.JOURNAL_SNAPSHOT_KEY));
+                } catch (Exception e) {
+                    Files.deleteIfExists(journal.file); // No snapshot yet
+                }
+            }
+            if (Files.exists(journal.file)) {
+                dropTornRecord(journal.file);
+            }
+            journal.writer = Files.newBufferedWriter(journal.file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return journal;
+    }
+
+    /**
+     * True if the records came from the snapshot rather than a local journal. Results that arrived after the
+     * snapshot are then missing, and their messages are already deleted from the result queue.
+     */
+    public boolean restoredFromSnapshot() {
+        return restored;
+    }
+
+    public synchronized List<String> records() {
+        if (file == null || !Files.exists(file)) return new ArrayList<>();
+        try {
+            writer.flush();
+            return Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized void append(String... fields) {
+        if (writer == null) return;
+        try {
+            writer.write(String.join("\t", fields));
+            writer.newLine();
+            writer.flush();
+            dirty = true;
+        } catch (IOException e) {
+            // The in-memory state is still correct; only recovery is affected
+            System.err.println("Failed to write job journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Compacts the journal and uploads it as the snapshot, if anything was written since the last one.
+     */
+    public void snapshot() {
+        synchronized (uploadLock) {
+            Path copy;
+            synchronized (this) {
+                if (writer == null || !dirty) return;
+                try {
+                    copy = compact();
+                    dirty = false;
+                } catch (IOException e) {
+                    System.err.println("Failed to compact job journal: " + e.getMessage());
+                    return;
+                }
+            }
+
+            // Upload outside the journal lock so results keep being journaled meanwhile
+            try {
+                Services.blobs().putFile(Utils.JOURNAL_SNAPSHOT_KEY, copy);
+                Files.delete(copy);
+            } catch (Exception e) {
+                System.err.println("Failed to upload job journal snapshot: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * After a clean shutdown there is nothing to recover: empties the local journal and the snapshot.
+     */
+    public void clear() {
+        synchronized (uploadLock) {
+            synchronized (this) {
+                if (writer == null) return;
+                try {
+                    writer.close();
+                    writer = null;
+                    Files.deleteIfExists(file);
+                    Services.blobs().putBytes(Utils.JOURNAL_SNAPSHOT_KEY, new byte[0]);
+                } catch (Exception e) {
+                    System.err.println("Failed to clear job journal: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // A crash mid-write leaves a torn last record. It is dropped rather than half applied:
+    // whatever it recorded is redone (the queue message behind it was not deleted yet, or the tasks are sent again).
+    private static void dropTornRecord(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long end = channel.size();
+            ByteBuffer last = ByteBuffer.allocate(1);
+            while (end > 0) {
+                last.clear();
+                channel.read(last, end - 1);
+                if (last.get(0) == '\n') break;
+                end--;
+            }
+            if (end < channel.size()) {
+                System.out.println("Dropping torn job journal record (" + (channel.size() - end) + " bytes)");
+                channel.truncate(end);
+            }
+        }
+    }
+
+    // Rewrites the log without finished jobs and returns a copy of it for upload. Called with the lock held.
+    private Path compact() throws IOException {
+        writer.flush();
+        List<String> records = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Set<String> finished = new HashSet<>();
+        for (String record : records) {
+            if (record.startsWith("FINISHED\t")) finished.add(record.split("\t")[1]);
+        }
+
+        Path compacted = file.resolveSibling(FILE_NAME + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (String record : records) {
+                String[] fields = record.split("\t");
+                if (fields.length > 1 && finished.contains(fields[1])) continue;
+                out.write(record);
+                out.newLine();
+            }
+        }
+        try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+
+        writer.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        Path copy = Files.createTempFile("journal", ".log");
+        Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+        return copy;
+    }
+}
@@ -0,0 +1,101 @@
+package com.dsp.assignment1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * QueueService decorator that measures queue lag (send to receive) per queue.
+ * The send time travels as a prefix of the body, so every process sharing the queues
+ * must use this decorator - only intended for the in-process benchmark.
+ */
+public class LagRecordingQueueService implements QueueService {
+    private static final char SEPARATOR = '|';
+
+    private final QueueService delegate;
+    private final Map<String, List<Long>> lagMillisByQueue = new ConcurrentHashMap<>();
+
+    public LagRecordingQueueService(QueueService delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String createQueue(String queueName) {
+        return delegate.createQueue(queueName);
+    }
+
+    @Override
+    public String getQueueUrl(String queueName) {
+        return delegate.getQueueUrl(queueName);
+    }
+
+    @Override
+    public void sendMessage(String queueUrl, String body) {
+        delegate.sendMessage(queueUrl, System.currentTimeMillis() + String.valueOf(SEPARATOR) + body);
+    }
+
+    @Override
+    public List<QueueMessage> receiveMessages(String queueUrl, int maxMessages, int waitTimeSeconds, int visibilityTimeoutSeconds) {
+        List<QueueMessage> received = delegate.receiveMessages(queueUrl, maxMessages, waitTimeSeconds, visibilityTimeoutSeconds);
+        long now = System.currentTimeMillis();
+
+        List<QueueMessage> unwrapped = new ArrayList<>(received.size());
+        for (QueueMessage message : received) {
+            int separator = message.body().indexOf(SEPARATOR);
+            long sentAt = Long.parseLong(message.body().substring(0, separator));
+            lagMillisByQueue.computeIfAbsent(stageName(queueUrl), k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(now - sentAt);
+            unwrapped.add(new QueueMessage(message.body().substring(separator + 1), message.receiptHandle()));
+        }
+        return unwrapped;
+    }
+
+    @Override
+    public void deleteMessage(String queueUrl, String receiptHandle) {
+        delegate.deleteMessage(queueUrl, receiptHandle);
+    }
+
+    @Override
+    public void deleteQueue(String queueUrl) {
+        delegate.deleteQueue(queueUrl);
+    }
+
+    @Override
+    public int getApproximateMessageCount(String queueUrl) {
+        return delegate.getApproximateMessageCount(queueUrl);
+    }
+
+    @Override
+    public int getApproximateInFlightCount(String queueUrl) {
+        return delegate.getApproximateInFlightCount(queueUrl);
+    }
+
+    /**
+     * Recorded lags in milliseconds, keyed by queue name (all reply queues share "LocalAppQueue").
+     */
+    public Map<String, List<Long>> getLagMillisByQueue() {
+        Map<String, List<Long>> copy = new TreeMap<>();
+        for (Map.Entry<String, List<Long>> e : lagMillisByQueue.entrySet()) {
+            synchronized (e.getValue()) {
+                copy.put(e.getKey(), e.getValue().stream().collect(Collectors.toList()));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Drops the lags recorded so far (e.g. after a warm-up run).
+     */
+    public void reset() {
+        lagMillisByQueue.clear();
+    }
+
+    private static String stageName(String queueUrl) {
+        String name = queueUrl.substring(queueUrl.lastIndexOf('/') + 1);
+        return name.startsWith("LocalAppQueue-") ? "LocalAppQueue" : name;
+    }
+}
@@ -0,0 +1,268 @@
+package com.dsp.assignment1;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load generator. Generates synthetic input files, submits concurrent jobs the way
+ * LocalApplication does against the single-node stand-ins for S3, SQS and EC2, and writes
+ * throughput, job latency percentiles and per-queue lag as JSON so runs can be compared.
+ *
+ * Options (all optional): --jobs 20 --concurrency 4 --warmup-jobs 1 --docs 10
+ * --min-sentences 5 --max-sentences 40 --mix POS:1,CONSTITUENCY:1,DEPENDENCY:1
+ * --workers 4 --n 5 --seed 42 --dir bench-data --out bench-results.json
+ */
+public class LoadBenchmark {
+    private static final String[] VOCABULARY = {
+            "the", "a", "small", "old", "quiet", "river", "city", "teacher", "dog", "garden",
+            "walked", "saw", "built", "found", "carried", "near", "under", "with", "quickly", "yesterday",
+            "house", "letter", "mountain", "student", "bright", "long", "road", "opened", "window", "morning"
+    };
+    private static final int MIN_WORDS = 6;
+    private static final int MAX_WORDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int jobs = Integer.parseInt(options.getOrDefault("jobs", "20"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "4"));
+        int warmupJobs = Integer.parseInt(options.getOrDefault("warmup-jobs", "1"));
+        int docs = Integer.parseInt(options.getOrDefault("docs", "10"));
+        int minSentences = Integer.parseInt(options.getOrDefault("min-sentences", "5"));
+        int maxSentences = Integer.parseInt(options.getOrDefault("max-sentences", "40"));
+        Map<String, Integer> mix = parseMix(options.getOrDefault("mix", "POS:1,CONSTITUENCY:1,DEPENDENCY:1"));
+        int workers = Integer.parseInt(options.getOrDefault("workers", "4"));
+        int n = Integer.parseInt(options.getOrDefault("n", "5"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        Path dir = Paths.get(options.getOrDefault("dir", "bench-data")).toAbsolutePath();
+        Path out = Paths.get(options.getOrDefault("out", "bench-results.json"));
+
+        // 1. Generate the synthetic workload
+        System.out.println("Generating " + (warmupJobs + jobs) + " input files...");
+        Random random = new Random(seed);
+        List<Path> inputs = new ArrayList<>();
+        long sentencesGenerated = 0;
+        for (int j = 0; j < warmupJobs + jobs; j++) {
+            List<String> lines = new ArrayList<>();
+            for (int d = 0; d < docs; d++) {
+                Path doc = dir.resolve("corpus").resolve("job-" + j).resolve("doc-" + d + ".txt");
+                int count = minSentences + random.nextInt(maxSentences - minSentences + 1);
+                writeDocument(doc, count, random);
+                if (j >= warmupJobs) sentencesGenerated += count;
+                lines.add(pickAnalysisType(mix, random) + "\t" + doc.toUri());
+            }
+            Path input = dir.resolve("inputs").resolve("job-" + j + ".txt");
+            write(input, String.join("\n", lines) + "\n");
+            inputs.add(input);
+        }
+
+        // 2. Start the single-node cluster, measuring lag on every queue
+        LagRecordingQueueService queues = new LagRecordingQueueService(new InMemoryQueueService());
+        LocalComputeProvisioner compute = LocalCluster.start(workers, queues, dir.resolve("blobs"));
+        FlightRecording.startFromProperties("benchmark");
+
+        // 3. Warm up (Manager start, model load), then run the measured jobs concurrently
+        // The Manager is started here, before any job, so it is up even without warm-up jobs
+        compute.startManager();
+        for (int j = 0; j < warmupJobs; j++) {
+            runJob(inputs.get(j), dir, n);
+        }
+        queues.reset();
+        // Sentences the Workers actually parsed; generated sentences over 80 words are skipped
+        long parsedBefore = Worker.sentencesParsed();
+        long skippedBefore = Worker.sentencesSkipped();
+
+        System.out.println("Running " + jobs + " jobs with concurrency " + concurrency + "...");
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        List<Future<Long>> latencies = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int j = warmupJobs; j < warmupJobs + jobs; j++) {
+            Path input = inputs.get(j);
+            latencies.add(clients.submit(() -> runJob(input, dir, n)));
+        }
+
+        List<Long> latencyMillis = new ArrayList<>();
+        int failedJobs = 0;
+        for (Future<Long> latency : latencies) {
+            try {
+                latencyMillis.add(latency.get());
+            } catch (Exception e) {
+                e.printStackTrace();
+                failedJobs++;
+            }
+        }
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+        long sentencesParsed = Worker.sentencesParsed() - parsedBefore;
+        long sentencesSkipped = Worker.sentencesSkipped() - skippedBefore;
+        clients.shutdown();
+
+        // 4. Shut the cluster down the way LocalApplication's terminate flag does
+        queues.sendMessage(queues.getQueueUrl(Utils.MANAGER_TASK_QUEUE_NAME), "TERMINATE");
+        compute.awaitManager();
+
+        // 5. Report
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("jobs", jobs);
+        config.put("concurrency", concurrency);
+        config.put("warmupJobs", warmupJobs);
+        config.put("docsPerJob", docs);
+        config.put("minSentences", minSentences);
+        config.put("maxSentences", maxSentences);
+        config.put("mix", mix);
+        config.put("workers", workers);
+        config.put("n", n);
+        config.put("seed", seed);
+
+        Map<String, Object> environment = new LinkedHashMap<>();
+        environment.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        environment.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+        environment.put("javaVersion", System.getProperty("java.version"));
+
+        Map<String, Object> queueLag = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Long>> e : queues.getLagMillisByQueue().entrySet()) {
+            queueLag.put(e.getKey(), distribution(e.getValue()));
+        }
+
+        int completedJobs = latencyMillis.size();
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("completedJobs", completedJobs);
+        results.put("failedJobs", failedJobs);
+        results.put("documents", (long) jobs * docs);
+        results.put("sentencesGenerated", sentencesGenerated);
+        results.put("sentencesParsed", sentencesParsed);
+        results.put("sentencesSkipped", sentencesSkipped);
+        results.put("wallSeconds", wallSeconds);
+        results.put("jobsPerSecond", completedJobs / wallSeconds);
+        results.put("sentencesPerSecond", sentencesParsed / wallSeconds);
+        results.put("jobLatencyMillis", distribution(latencyMillis));
+        results.put("queueLagMillis", queueLag);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("config", config);
+        report.put("environment", environment);
+        report.put("results", results);
+
+        String json = toJson(report, "");
+        write(out, json + "\n");
+        System.out.println(json);
+        System.out.println("Results written to " + out.toAbsolutePath());
+        System.exit(failedJobs == 0 ? 0 : 1);
+    }
+
+    private static long runJob(Path input, Path dir, int n) throws IOException {
+        String name = input.getFileName().toString().replace(".txt", ".html");
+        Path summary = dir.resolve("summaries").resolve(name);
+        Files.createDirectories(summary.getParent());
+        Files.deleteIfExists(summary);
+
+        long start = System.nanoTime();
+        LocalApplication.runJob(input.toString(), summary.toString(), n, false);
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static void writeDocument(Path doc, int sentences, Random random) {
+        StringBuilder text = new StringBuilder();
+        for (int s = 0; s < sentences; s++) {
+            int words = MIN_WORDS + random.nextInt(MAX_WORDS - MIN_WORDS + 1);
+            for (int w = 0; w < words; w++) {
+                String word = VOCABULARY[random.nextInt(VOCABULARY.length)];
+                text.append(w == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+                text.append(w == words - 1 ? ". " : " ");
+            }
+            if (s % 5 == 4) text.append("\n");
+        }
+        write(doc, text.append("\n").toString());
+    }
+
+    private static String pickAnalysisType(Map<String, Integer> mix, Random random) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int pick = random.nextInt(total);
+        for (Map.Entry<String, Integer> e : mix.entrySet()) {
+            pick -= e.getValue();
+            if (pick < 0) return e.getKey();
+        }
+        throw new IllegalStateException("Empty analysis mix");
+    }
+
+    private static void write(Path path, String content) {
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            Files.write(path, content.getBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<String, Object> distribution(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+
+        Map<String, Object> d = new LinkedHashMap<>();
+        d.put("count", sorted.size());
+        d.put("mean", sorted.isEmpty() ? null : sorted.stream().mapToLong(Long::longValue).average().getAsDouble());
+        d.put("p50", Utils.percentile(sorted, 50));
+        d.put("p95", Utils.percentile(sorted, 95));
+        d.put("p99", Utils.percentile(sorted, 99));
+        d.put("max", sorted.isEmpty() ? null : sorted.get(sorted.size() - 1));
+        return d;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value, got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split(":");
+            weights.put(parts[0].trim(), parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1);
+        }
+        return weights;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String toJson(Object value, String indent) {
+        if (value == null) return "null";
+        if (value instanceof Map) {
+            Map<String, Object> map = (Map<String, Object>) value;
+            if (map.isEmpty()) return "{}";
+            String inner = indent + "  ";
+            StringBuilder json = new StringBuilder("{\n");
+            int i = 0;
+            for (Map.Entry<String, Object> e : map.entrySet()) {
+                json.append(inner).append('"').append(e.getKey()).append("\": ").append(toJson(e.getValue(), inner));
+                json.append(++i < map.size() ? ",\n" : "\n");
+            }
+            return json.append(indent).append('}').toString();
+        }
+        if (value instanceof Double) {
+            return String.format(Locale.ROOT, "%.3f", (Double) value);
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        return '"' + value.toString().replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
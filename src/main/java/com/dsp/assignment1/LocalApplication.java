@@ -1,241 +1,465 @@
 package com.dsp.assignment1;
 
-import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.ec2.Ec2Client;
-import software.amazon.awssdk.services.ec2.model.*;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
-import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
-import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
-import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.*;
-
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Base64;
+import java.nio.file.DirectoryStream;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 public class LocalApplication {
-    private static final Region REGION = Utils.REGION;
-    public static final String MANAGER_AMI_ID = "ami-023186f8ad1eccd14";
-    private static final S3Client s3 = S3Client.builder().region(REGION).build();
-    private static final SqsClient sqs = SqsClient.builder().region(REGION).build();
-    private static final Ec2Client ec2 = Ec2Client.builder().region(REGION).build();
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            batchMain(args);
+            return;
+        }
         if (args.length < 3) {
-            System.out.println("Usage: java -jar yourjar.jar inputFileName outputFileName n [terminate]");
+            System.out.println("Usage: java -jar yourjar.jar inputFileName outputFileName n [terminate] [--results-dir DIR] [--fetch DIR]");
+            System.out.println("   or: java -jar yourjar.jar --batch outputDir n [terminate] inputFileOrGlob...");
             System.exit(1);
         }
 
         String inputFileName = args[0];
         String outputFileName = args[1];
         int n = Integer.parseInt(args[2]);
-        boolean terminate = args.length > 3 && args[3].equals("terminate");
+        boolean terminate = false;
+        Path resultsDir = null;
+        Path fetchDir = null;
+        for (int i = 3; i < args.length; i++) {
+            if (args[i].equals("terminate")) {
+                terminate = true;
+            } else if (args[i].equals("--results-dir") && i + 1 < args.length) {
+                resultsDir = Paths.get(args[++i]);
+            } else if (args[i].equals("--fetch") && i + 1 < args.length) {
+                fetchDir = Paths.get(args[++i]);
+            } else {
+                System.out.println("Unknown argument: " + args[i]);
+                System.exit(1);
+            }
+        }
 
-        String localAppId = UUID.randomUUID().toString();
-        System.out.println("Local Application ID: " + localAppId);
+        Services.install(
+                new SqsQueueService(Utils.REGION),
+                new S3BlobStore(Utils.REGION, Utils.S3_BUCKET_NAME),
+                new Ec2ComputeProvisioner(Utils.REGION));
 
         try {
-            // 1. Setup S3
-            System.out.println("Setting up S3...");
-            ensureBucketExists(Utils.S3_BUCKET_NAME);
-
-            // 2. Upload input file to S3
-            System.out.println("Uploading input file to S3...");
-            String inputFileKey = "input/" + localAppId + "/" + new File(inputFileName).getName();
-            uploadFileToS3(inputFileName, Utils.S3_BUCKET_NAME, inputFileKey);
-            System.out.println("Input file uploaded to: " + Utils.S3_BUCKET_NAME + "/" + inputFileKey);
-
-            // 2. Check for Manager
-            System.out.println("Checking for active Manager...");
-            ensureManagerActive();
-
-            // 3. Create Reply-To Queue
-            String replyQueueName = "LocalAppQueue-" + localAppId;
-            String replyQueueUrl = createQueue(replyQueueName);
-            System.out.println("Created reply queue: " + replyQueueUrl);
-
-            // 4. Send message to Manager
-            // Format: "TASK \t inputFileKey \t n \t replyQueueUrl"
-            String messageBody = String.join("\t", "TASK", inputFileKey, String.valueOf(n), replyQueueUrl);
-            String managerQueueUrl = getQueueUrl(Utils.MANAGER_TASK_QUEUE_NAME);
-            sendMessage(managerQueueUrl, messageBody);
-            System.out.println("Task sent to Manager.");
-
-            // 5. Wait for response
-            System.out.println("Waiting for response...");
-            waitForResponse(replyQueueUrl, outputFileName);
-
-            // 6. Handle termination
-            if (terminate) {
-                System.out.println("Sending terminate message to Manager...");
-                sendMessage(managerQueueUrl, "TERMINATE");
+            runJob(inputFileName, outputFileName, n, terminate, resultsDir == null ? null : resultDownloader(resultsDir));
+            if (fetchDir != null) {
+                new OutputFetcher(fetchDir, Utils.FETCH_PARALLELISM, Utils.FETCH_PART_SIZE)
+                        .fetch(OutputFetcher.readSummary(Paths.get(outputFileName)));
             }
-
-            // 7. Cleanup
-            System.out.println("Cleaning up queue...");
-            deleteQueue(replyQueueUrl);
-
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    private static void ensureBucketExists(String bucketName) {
+    private static void batchMain(String[] args) {
+        // "--batch outputDir n [terminate] inputFileOrGlob..."
+        if (args.length < 4) {
+            System.out.println("Usage: java -jar yourjar.jar --batch outputDir n [terminate] inputFileOrGlob...");
+            System.exit(1);
+        }
+        Path outputDir = Paths.get(args[1]);
+        int n = Integer.parseInt(args[2]);
+        boolean terminate = args[3].equals("terminate");
+
+        Services.install(
+                new SqsQueueService(Utils.REGION),
+                new S3BlobStore(Utils.REGION, Utils.S3_BUCKET_NAME),
+                new Ec2ComputeProvisioner(Utils.REGION));
+
         try {
-            s3.headBucket(HeadBucketRequest.builder().bucket(bucketName).build());
-            System.out.println("Bucket " + bucketName + " already exists.");
-        } catch (NoSuchBucketException e) {
-            System.out.println("Bucket " + bucketName + " does not exist. Creating...");
-            s3.createBucket(CreateBucketRequest.builder().bucket(bucketName).build());
-            System.out.println("Bucket " + bucketName + " created successfully.");
+            List<Path> inputs = new ArrayList<>();
+            for (int i = terminate ? 4 : 3; i < args.length; i++) {
+                inputs.addAll(expandGlob(args[i]));
+            }
+            Map<Path, Path> summaries = runBatch(inputs, outputDir, n, terminate);
+            System.exit(summaries.containsValue(null) ? 1 : 0);
         } catch (Exception e) {
-            // If headBucket fails for any other reason, try to create the bucket
-            System.out.println("Error checking bucket existence: " + e.getMessage() + ". Attempting to create...");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * A path, or a glob in its file name (e.g. "inputs/*.txt") matched in sorted order.
+     */
+    static List<Path> expandGlob(String pattern) throws IOException {
+        Path path = Paths.get(pattern);
+        String name = path.getFileName().toString();
+        if (!name.contains("*") && !name.contains("?") && !name.contains("[") && !name.contains("{")) {
+            return Collections.singletonList(path);
+        }
+        Path parent = path.getParent() != null ? path.getParent() : Paths.get(".");
+        List<Path> matches = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(parent, name)) {
+            for (Path match : stream) {
+                if (Files.isRegularFile(match)) matches.add(match);
+            }
+        }
+        if (matches.isEmpty()) {
+            System.out.println("No input files match " + pattern);
+        }
+        Collections.sort(matches);
+        return matches;
+    }
+
+    /**
+     * Submits many input files as one batch: the bucket check, Manager check and reply queue are set up once,
+     * inputs are uploaded in parallel and every job replies on the shared queue. Each summary is saved to
+     * outputDir/{input name}.html as soon as its job finishes. Returns the summary per input, null for failed inputs.
+     */
+    public static Map<Path, Path> runBatch(List<Path> inputFiles, Path outputDir, int n, boolean terminate) throws IOException {
+        String batchId = UUID.randomUUID().toString();
+        System.out.println("Batch ID: " + batchId + " (" + inputFiles.size() + " input files)");
+        Files.createDirectories(outputDir);
+
+        // 1. One-time setup for the whole batch
+        Services.blobs().ensureBucketExists();
+        ensureManagerActive();
+        String replyQueueUrl = Services.queues().createQueue("LocalAppQueue-" + batchId);
+        String managerQueueUrl = getQueueUrl(Utils.MANAGER_TASK_QUEUE_NAME);
+
+        // Inputs with the same file name get their index as a prefix so summaries don't collide
+        Set<String> names = new HashSet<>();
+        boolean duplicateNames = false;
+        for (Path input : inputFiles) {
+            duplicateNames |= !names.add(input.getFileName().toString());
+        }
+
+        // 2. Upload in parallel; each job is submitted as soon as its input is uploaded
+        BatchReplies replies = new BatchReplies();
+        ExecutorService uploads = Executors.newFixedThreadPool(Utils.BATCH_UPLOAD_PARALLELISM);
+        List<Future<?>> submissions = new ArrayList<>();
+        for (int i = 0; i < inputFiles.size(); i++) {
+            Path input = inputFiles.get(i);
+            String fileName = input.getFileName().toString();
+            String inputFileKey = "input/" + batchId + "/" + i + "-" + fileName;
+            String summaryName = (duplicateNames ? i + "-" : "") + fileName.replaceFirst("\\.[^.]*$", "") + ".html";
+            String traceId = batchId + "-" + i;
+            replies.summaries.put(input, null);
+            submissions.add(uploads.submit(() -> {
+                Services.blobs().putFile(inputFileKey, input);
+                // Registered before submitting, so the reply can always be routed
+                replies.expect(inputFileKey, input, outputDir.resolve(summaryName));
+                submitJob(managerQueueUrl, inputFileKey, n, replyQueueUrl, traceId);
+                return null;
+            }));
+        }
+        int submitted = 0;
+        for (int i = 0; i < submissions.size(); i++) {
             try {
-                s3.createBucket(CreateBucketRequest.builder().bucket(bucketName).build());
-                System.out.println("Bucket " + bucketName + " created successfully.");
-            } catch (Exception createEx) {
-                // If bucket already exists, that's fine
-                if (createEx.getMessage() != null && createEx.getMessage().contains("BucketAlreadyExists")) {
-                    System.out.println("Bucket " + bucketName + " already exists (created by another process).");
-                } else {
-                    throw createEx;
+                submissions.get(i).get();
+                submitted++;
+            } catch (Exception e) {
+                System.err.println("Failed to submit " + inputFiles.get(i) + ": " + e.getMessage());
+            }
+        }
+        uploads.shutdown();
+        System.out.println("Submitted " + submitted + " of " + inputFiles.size() + " jobs. Waiting for summaries...");
+
+        // 3. Collect summaries in completion order, routing replies by their input key
+        long start = System.currentTimeMillis();
+        long lastReply = start;
+        long lastManagerCheck = start;
+        while (replies.finished.size() < submitted) {
+            List<QueueMessage> messages = Services.queues().receiveMessages(replyQueueUrl, 10, 20, 0);
+            long now = System.currentTimeMillis();
+            if (!messages.isEmpty()) {
+                lastReply = now;
+            } else if (now - lastReply > Utils.BATCH_IDLE_MINUTES * 60_000L) {
+                System.err.println("No reply for " + Utils.BATCH_IDLE_MINUTES + " minutes; giving up on "
+                        + (submitted - replies.finished.size()) + " unfinished jobs");
+                break;
+            } else if (now - Math.max(lastReply, lastManagerCheck) > Utils.MANAGER_CHECK_SECONDS * 1000L) {
+                lastManagerCheck = now;
+                ensureManagerActive();
+            }
+
+            for (QueueMessage message : messages) {
+                if (replies.route(message.body())) {
+                    System.out.println("Finished " + replies.finished.size() + "/" + submitted + " jobs ("
+                            + (System.currentTimeMillis() - start) / 1000 + "s)");
+                }
+                Services.queues().deleteMessage(replyQueueUrl, message.receiptHandle());
+            }
+        }
+        for (String inputFileKey : replies.unfinished()) {
+            System.err.println("[" + replies.inputsByKey.get(inputFileKey).getFileName() + "] Never finished (" + inputFileKey + ")");
+        }
+
+        // 4. Termination and cleanup, once for the batch
+        if (terminate) {
+            System.out.println("Sending terminate message to Manager...");
+            Services.queues().sendMessage(managerQueueUrl, "TERMINATE");
+        }
+        System.out.println("Cleaning up queue...");
+        Services.queues().deleteQueue(replyQueueUrl);
+        return replies.summaries;
+    }
+
+    /**
+     * Routes the replies of a batch's jobs by their input key. Package-private for LocalApplicationTest.
+     */
+    static class BatchReplies {
+        final Map<Path, Path> summaries = Collections.synchronizedMap(new LinkedHashMap<>()); // Null until saved
+        final Map<String, Path> inputsByKey = new ConcurrentHashMap<>();
+        final Map<String, Path> summaryFiles = new ConcurrentHashMap<>();
+        final Set<String> finished = new HashSet<>(); // Input keys with a DONE, saved or failed
+
+        void expect(String inputFileKey, Path input, Path summaryFile) {
+            inputsByKey.put(inputFileKey, input);
+            summaryFiles.put(inputFileKey, summaryFile);
+        }
+
+        /**
+         * Handles one reply; true if it finished a job (a repeated DONE does not).
+         */
+        boolean route(String body) {
+            String[] header = body.split("\n")[0].split("\t");
+            String inputFileKey = header.length > 2 ? header[1] : null;
+            Path input = inputFileKey != null ? inputsByKey.get(inputFileKey) : null;
+
+            if (input == null) {
+                System.out.println("Ignoring unexpected reply: " + header[0]);
+                return false;
+            } else if (header[0].equals("PROGRESS")) {
+                System.out.println("[" + input.getFileName() + "] " + header[2] + "/" + header[3] + " tasks done, " + header[4] + " failed");
+                return false;
+            } else if (!header[0].equals("DONE") || !finished.add(inputFileKey)) {
+                return false;
+            }
+
+            Path summary = summaryFiles.get(inputFileKey);
+            if (header.length > 4) {
+                // Counted as a failed input; its error summary is not saved
+                System.err.println("[" + input.getFileName() + "] Job failed: " + header[4]);
+            } else {
+                try {
+                    Files.deleteIfExists(summary);
+                    Services.blobs().getFile(header[2], summary);
+                    summaries.put(input, summary);
+                    System.out.println("[" + input.getFileName() + "] Summary saved to " + summary);
+                } catch (Exception e) {
+                    System.err.println("[" + input.getFileName() + "] Failed to download summary " + header[2] + ": " + e.getMessage());
                 }
             }
+            return true;
+        }
+
+        /**
+         * Input keys of submitted jobs without a DONE yet.
+         */
+        List<String> unfinished() {
+            List<String> unfinished = new ArrayList<>();
+            for (String inputFileKey : inputsByKey.keySet()) {
+                if (!finished.contains(inputFileKey)) unfinished.add(inputFileKey);
+            }
+            Collections.sort(unfinished);
+            return unfinished;
         }
     }
 
-    private static void uploadFileToS3(String filePath, String bucket, String key) {
-        s3.putObject(PutObjectRequest.builder()
-                .bucket(bucket)
-                .key(key)
-                .build(), Paths.get(filePath));
+    /**
+     * Submits one input file to the Manager and waits for its summary, using the installed Services.
+     */
+    public static void runJob(String inputFileName, String outputFileName, int n, boolean terminate) {
+        runJob(inputFileName, outputFileName, n, terminate, null);
     }
 
-    private static void ensureManagerActive() {
-        Filter tagFilter = Filter.builder()
-                .name("tag:" + Utils.TAG_KEY_ROLE)
-                .values(Utils.TAG_VALUE_MANAGER)
-                .build();
-        
-        Filter stateFilter = Filter.builder()
-                .name("instance-state-name")
-                .values("running", "pending")
-                .build();
-
-        DescribeInstancesResponse response = ec2.describeInstances(DescribeInstancesRequest.builder()
-                .filters(tagFilter, stateFilter)
-                .build());
-
-        boolean managerActive = response.reservations().stream()
-                .anyMatch(r -> !r.instances().isEmpty());
-
-        if (!managerActive) {
-            System.out.println("No active Manager found. Starting new Manager...");
-            startManager();
-        } else {
-            System.out.println("Manager is already active.");
+    /**
+     * Like runJob, but hands every finished task to onResult as soon as the Manager reports it (onResult may be null).
+     */
+    public static void runJob(String inputFileName, String outputFileName, int n, boolean terminate, Consumer<TaskResult> onResult) {
+        String localAppId = UUID.randomUUID().toString();
+        System.out.println("Local Application ID: " + localAppId);
+
+        // 1. Setup S3
+        System.out.println("Setting up S3...");
+        Services.blobs().ensureBucketExists();
+
+        // 2. Upload input file to S3
+        System.out.println("Uploading input file to S3...");
+        String inputFileKey = "input/" + localAppId + "/" + new File(inputFileName).getName();
+        Services.blobs().putFile(inputFileKey, Paths.get(inputFileName));
+        System.out.println("Input file uploaded to: " + Services.blobs().uri(inputFileKey));
+
+        // 2. Check for Manager
+        System.out.println("Checking for active Manager...");
+        ensureManagerActive();
+
+        // 3. Create Reply-To Queue
+        String replyQueueName = "LocalAppQueue-" + localAppId;
+        String replyQueueUrl = Services.queues().createQueue(replyQueueName);
+        System.out.println("Created reply queue: " + replyQueueUrl);
+
+        // 4. Send message to Manager
+        String managerQueueUrl = getQueueUrl(Utils.MANAGER_TASK_QUEUE_NAME);
+        submitJob(managerQueueUrl, inputFileKey, n, replyQueueUrl, localAppId);
+        System.out.println("Task sent to Manager.");
+
+        // 5. Wait for response
+        System.out.println("Waiting for response...");
+        waitForResponse(replyQueueUrl, outputFileName, onResult);
+
+        // 6. Handle termination
+        if (terminate) {
+            System.out.println("Sending terminate message to Manager...");
+            Services.queues().sendMessage(managerQueueUrl, "TERMINATE");
         }
+
+        // 7. Cleanup
+        System.out.println("Cleaning up queue...");
+        Services.queues().deleteQueue(replyQueueUrl);
     }
 
-    private static void startManager() {
-        // User Data script to start the Manager
-        // Using baked-in JAR at /home/ec2-user/manager.jar
-        String userDataScript = "#!/bin/bash\n" +
-                // "aws s3 cp s3://" + Utils.S3_BUCKET_NAME + "/manager.jar /home/ec2-user/manager.jar\n" + // Skip download
-                "java -jar /home/ec2-user/manager.jar\n";
-        
-        String userDataEncoded = Base64.getEncoder().encodeToString(userDataScript.getBytes());
-
-        TagSpecification tagSpec = TagSpecification.builder()
-                .resourceType(ResourceType.INSTANCE)
-                .tags(Tag.builder().key(Utils.TAG_KEY_ROLE).value(Utils.TAG_VALUE_MANAGER).build())
-                .build();
-
-        RunInstancesRequest runRequest = RunInstancesRequest.builder()
-                .imageId(MANAGER_AMI_ID)
-                .instanceType(InstanceType.T3_LARGE) 
-                .keyName("vockey")
-                .maxCount(1)
-                .minCount(1)
-                .userData(userDataEncoded)
-                .tagSpecifications(tagSpec)
-                .iamInstanceProfile(IamInstanceProfileSpecification.builder().name("LabInstanceProfile").build()) 
-                .build();
-
-        ec2.runInstances(runRequest);
-        System.out.println("Manager instance launched.");
+    private static void submitJob(String managerQueueUrl, String inputFileKey, int n, String replyQueueUrl, String traceId) {
+        // Format: "TASK \t inputFileKey \t n \t replyQueueUrl \t TRACE"
+        Trace trace = new Trace(traceId).mark(Trace.SUBMITTED);
+        String messageBody = String.join("\t", "TASK", inputFileKey, String.valueOf(n), replyQueueUrl, trace.encode());
+        Services.queues().sendMessage(managerQueueUrl, messageBody);
     }
 
-    private static String createQueue(String queueName) {
-        CreateQueueRequest request = CreateQueueRequest.builder()
-                .queueName(queueName)
-                .build();
-        return sqs.createQueue(request).queueUrl();
+    private static void ensureManagerActive() {
+        if (!Services.compute().isManagerActive()) {
+            System.out.println("No active Manager found. Starting new Manager...");
+            Services.compute().startManager();
+        } else {
+            System.out.println("Manager is already active.");
+        }
     }
 
     private static String getQueueUrl(String queueName) {
-        try {
-            return sqs.getQueueUrl(GetQueueUrlRequest.builder().queueName(queueName).build()).queueUrl();
-        } catch (QueueDoesNotExistException e) {
+        String queueUrl = Services.queues().getQueueUrl(queueName);
+        if (queueUrl == null) {
             // If manager queue doesn't exist, create it (or Manager should create it? 
             // Usually Manager creates it, but LocalApp might start first.
             // Let's create it if missing.
-            return createQueue(queueName);
+            return Services.queues().createQueue(queueName);
         }
+        return queueUrl;
     }
 
-    private static void sendMessage(String queueUrl, String body) {
-        sqs.sendMessage(SendMessageRequest.builder()
-                .queueUrl(queueUrl)
-                .messageBody(body)
-                .build());
-    }
+    private static void waitForResponse(String queueUrl, String outputFileName, Consumer<TaskResult> onResult) {
+        long start = System.currentTimeMillis();
+        String summaryFileKey = null;
+        int total = -1;
+        Set<Integer> delivered = new HashSet<>(); // Task indexes, so a redelivered progress message is not handed on twice
+        int unindexed = 0;
+        long drainDeadline = 0;
+        long lastActivity = start; // Last reply or Manager check
 
-    private static void waitForResponse(String queueUrl, String outputFileName) {
         while (true) {
-            ReceiveMessageResponse response = sqs.receiveMessage(ReceiveMessageRequest.builder()
-                    .queueUrl(queueUrl)
-                    .maxNumberOfMessages(1)
-                    .waitTimeSeconds(20) // Long polling
-                    .build());
-
-            if (!response.messages().isEmpty()) {
-                Message message = response.messages().get(0);
-                String body = message.body(); // Body should be S3 key of summary file
-                System.out.println("Received response: " + body);
-                
-                // Body: "done \t S3_KEY" or just S3_KEY? 
-                // "done message from the manager to the application (S3 location of the analysis summary file)."
-                
-                String summaryFileKey = body; // Assuming body is just the key or URL
-                
-                // Download file
-                System.out.println("Downloading summary file...");
-                s3.getObject(GetObjectRequest.builder()
-                        .bucket(Utils.S3_BUCKET_NAME)
-                        .key(summaryFileKey)
-                        .build(), Paths.get(outputFileName));
-                
-                System.out.println("Summary file saved to " + outputFileName);
-                
-                // Delete message
-                sqs.deleteMessage(DeleteMessageRequest.builder()
-                        .queueUrl(queueUrl)
-                        .receiptHandle(message.receiptHandle())
-                        .build());
-                
+            // Once the summary is in, only wait for results whose progress message it overtook (SQS does not keep order)
+            boolean draining = summaryFileKey != null;
+            if (draining && (onResult == null || delivered.size() + unindexed >= total)) break;
+            long remaining = drainDeadline - System.currentTimeMillis();
+            if (draining && remaining <= 0) {
+                System.err.println((total - delivered.size() - unindexed) + " of " + total
+                        + " results were not delivered; the summary lists them all");
                 break;
             }
+            int waitSeconds = draining ? (int) Math.min(20, Math.max(1, remaining / 1000)) : 20;
+            List<QueueMessage> messages = Services.queues().receiveMessages(queueUrl, 10, waitSeconds, 0); // Long polling
+            if (!messages.isEmpty()) {
+                lastActivity = System.currentTimeMillis();
+            } else if (!draining && System.currentTimeMillis() - lastActivity > Utils.MANAGER_CHECK_SECONDS * 1000L) {
+                lastActivity = System.currentTimeMillis();
+                ensureManagerActive();
+            }
+
+            for (QueueMessage message : messages) {
+                String[] lines = message.body().split("\n");
+                String[] header = lines[0].split("\t");
+
+                if (header[0].equals("PROGRESS")) {
+                    // "PROGRESS \t inputFileKey \t completed \t total \t failed \t taskIndex,...", then one result per line
+                    int completed = Integer.parseInt(header[2]);
+                    total = Integer.parseInt(header[3]);
+                    long elapsedSeconds = (System.currentTimeMillis() - start) / 1000;
+                    System.out.println("Progress: " + completed + "/" + total + " tasks ("
+                            + (total == 0 ? 100 : completed * 100 / total) + "%, " + header[4] + " failed, "
+                            + elapsedSeconds + "s elapsed)");
+                    String[] indexes = header.length > 5 ? header[5].split(",") : new String[0];
+                    for (int i = 1; i < lines.length; i++) {
+                        int taskIndex = i - 1 < indexes.length ? Integer.parseInt(indexes[i - 1]) : -1;
+                        if (taskIndex < 0) {
+                            unindexed++;
+                        } else if (!delivered.add(taskIndex)) {
+                            continue;
+                        }
+                        if (onResult != null) onResult.accept(TaskResult.parse(lines[i], taskIndex));
+                    }
+                } else if (summaryFileKey == null) {
+                    // "DONE \t inputFileKey \t summaryKey \t totalTasks [\t ERROR]" (a bare key from older Managers)
+                    boolean done = header[0].equals("DONE");
+                    summaryFileKey = done ? header[2] : message.body();
+                    total = done ? Integer.parseInt(header[3]) : 0;
+                    drainDeadline = System.currentTimeMillis() + Utils.PROGRESS_DRAIN_SECONDS * 1000L;
+                    System.out.println("Received response: " + summaryFileKey);
+                    if (done && header.length > 4) {
+                        System.err.println("Job failed: " + header[4]);
+                    }
+                }
+
+                Services.queues().deleteMessage(queueUrl, message.receiptHandle());
+            }
         }
+
+        // Download file
+        System.out.println("Downloading summary file...");
+        Services.blobs().getFile(summaryFileKey, Paths.get(outputFileName));
+        System.out.println("Summary file saved to " + outputFileName);
     }
 
-    private static void deleteQueue(String queueUrl) {
-        sqs.deleteQueue(DeleteQueueRequest.builder().queueUrl(queueUrl).build());
+    /**
+     * Downloads each finished output into dir as it is reported and appends
+     * "ANALYSIS_TYPE \t INPUT_URL \t LOCAL_FILE_OR_ERROR" to dir/index.tsv for downstream processing.
+     */
+    static Consumer<TaskResult> resultDownloader(Path dir) {
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Path index = dir.resolve("index.tsv");
+        return result -> {
+            String local = result.output();
+            String key = result.failed() ? null : Services.blobs().keyOf(result.output());
+            if (key != null) {
+                Path file = dir.resolve(key.substring(key.lastIndexOf('/') + 1));
+                try {
+                    Files.deleteIfExists(file);
+                    Services.blobs().getFile(key, file);
+                    local = file.toString();
+                } catch (Exception e) {
+                    System.err.println("Failed to download " + result.output() + ": " + e.getMessage());
+                }
+            }
+            try {
+                Files.write(index, (String.join("\t", result.analysisType(), result.inputUrl(), local) + "\n").getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
     }
 }
-
@@ -0,0 +1,108 @@
+package com.dsp.assignment1;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Blob store backed by a local directory; keys map to relative paths under the root.
+ */
+public class LocalBlobStore implements BlobStore {
+    private final Path root;
+
+    public LocalBlobStore(Path root) {
+        this.root = root.toAbsolutePath();
+    }
+
+    @Override
+    public void ensureBucketExists() {
+        try {
+            Files.createDirectories(root);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void putFile(String key, Path file) {
+        try {
+            Path target = resolve(key);
+            Files.createDirectories(target.getParent());
+            Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void putBytes(String key, byte[] content) {
+        try {
+            Path target = resolve(key);
+            Files.createDirectories(target.getParent());
+            Files.write(target, content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void getFile(String key, Path destination) {
+        try {
+            Files.copy(resolve(key), destination);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long size(String key) {
+        try {
+            return Files.size(resolve(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public byte[] getRange(String key, long offset, int length) {
+        try (FileChannel channel = FileChannel.open(resolve(key))) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, Math.min(length, channel.size() - offset)));
+            while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) >= 0) {
+                // Keep reading until the range is filled
+            }
+            return buffer.array();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String uri(String key) {
+        return resolve(key).toUri().toString();
+    }
+
+    @Override
+    public String keyOf(String uri) {
+        try {
+            Path path = Paths.get(URI.create(uri)).normalize();
+            return path.startsWith(root) ? root.relativize(path).toString().replace('\\', '/') : null;
+        } catch (IllegalArgumentException | FileSystemNotFoundException e) {
+            return null; // Not a file: URI
+        }
+    }
+
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Key escapes blob store root: " + key);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,51 @@
+package com.dsp.assignment1;
+
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Single-node mode: runs LocalApplication, the Manager and up to workerThreads Workers in one JVM,
+ * with an in-memory queue and a local directory in place of SQS, S3 and EC2.
+ * Blobs are stored under the directory given by -Dlocal.dir (default "local-cluster").
+ */
+public class LocalCluster {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Usage: java -cp yourjar.jar com.dsp.assignment1.LocalCluster inputFileName outputFileName n [workerThreads]");
+            System.exit(1);
+        }
+
+        String inputFileName = args[0];
+        String outputFileName = args[1];
+        int n = Integer.parseInt(args[2]);
+        int workerThreads = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+
+        LocalComputeProvisioner compute = start(workerThreads);
+        MetricsServer.startFromProperties();
+        FlightRecording.startFromProperties("local");
+
+        // Always terminate: the Manager cannot outlive this JVM anyway
+        LocalApplication.runJob(inputFileName, outputFileName, n, true);
+        compute.awaitManager();
+        System.exit(0);
+    }
+
+    /**
+     * Installs the in-process Services. The Manager starts on the first submitted job.
+     */
+    public static LocalComputeProvisioner start(int workerThreads) {
+        return start(workerThreads, new InMemoryQueueService(), Paths.get(System.getProperty("local.dir", "local-cluster")));
+    }
+
+    public static LocalComputeProvisioner start(int workerThreads, QueueService queues, Path dataDir) {
+        // The models jar on the classpath carries the default English PCFG model
+        String modelPath = System.getProperty("worker.model", LexicalizedParser.DEFAULT_PARSER_LOC);
+
+        LocalComputeProvisioner compute = new LocalComputeProvisioner(modelPath, workerThreads);
+        Services.install(queues, new LocalBlobStore(dataDir), compute);
+        return compute;
+    }
+}
@@ -0,0 +1,89 @@
+package com.dsp.assignment1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the Manager and Workers as threads of the current JVM instead of EC2 instances.
+ */
+public class LocalComputeProvisioner implements ComputeProvisioner {
+    private final String modelPath;
+    private final int maxWorkers;
+
+    private Thread managerThread;
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private final AtomicBoolean workersRunning = new AtomicBoolean(true);
+
+    /**
+     * @param modelPath  parser model path or classpath resource for the Workers
+     * @param maxWorkers upper bound on Worker threads, regardless of what the Manager asks for
+     */
+    public LocalComputeProvisioner(String modelPath, int maxWorkers) {
+        this.modelPath = modelPath;
+        this.maxWorkers = maxWorkers;
+    }
+
+    @Override
+    public synchronized boolean isManagerActive() {
+        return managerThread != null && managerThread.isAlive();
+    }
+
+    /**
+     * Starts the Manager thread unless it is running. Concurrent jobs may all find no Manager and ask for one.
+     */
+    @Override
+    public synchronized void startManager() {
+        if (isManagerActive()) return;
+        managerThread = new Thread(Manager::run, "manager");
+        managerThread.start();
+        System.out.println("Manager thread started.");
+    }
+
+    /**
+     * Waits for the Manager thread to finish its shutdown.
+     */
+    public void awaitManager() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = managerThread;
+        }
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    @Override
+    public synchronized int getActiveWorkerCount() {
+        return (int) workerThreads.stream().filter(Thread::isAlive).count();
+    }
+
+    /**
+     * Worker threads share this JVM's heap and parse pool, so only the count of the spec applies.
+     */
+    @Override
+    public synchronized void startWorkers(int count, WorkerSpec spec) {
+        Worker.loadParser(modelPath);
+        workersRunning.set(true);
+
+        int toStart = Math.min(count, maxWorkers - getActiveWorkerCount());
+        for (int i = 0; i < toStart; i++) {
+            Thread worker = new Thread(() -> Worker.run(workersRunning::get), "worker-" + workerThreads.size());
+            worker.setDaemon(true);
+            workerThreads.add(worker);
+            worker.start();
+        }
+        System.out.println("Started " + Math.max(0, toStart) + " worker threads.");
+    }
+
+    @Override
+    public synchronized void terminateWorkers() {
+        workersRunning.set(false);
+        System.out.println("Stopping worker threads...");
+    }
+
+    @Override
+    public void terminateSelf() {
+        // The Manager thread ends when Manager.run returns
+    }
+}
@@ -1,154 +1,461 @@
 package com.dsp.assignment1;
 
-import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.ec2.Ec2Client;
-import software.amazon.awssdk.services.ec2.model.*;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
-import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.*;
-
-import software.amazon.awssdk.utils.IoUtils;
-
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class Manager {
-    private static final Region REGION = Utils.REGION;
-    public static final String WORKER_AMI_ID = "ami-0ed259eaabf1ff80d";
-    private static final S3Client s3 = S3Client.builder().region(REGION).build();
-    private static final SqsClient sqs = SqsClient.builder().region(REGION).build();
-    private static final Ec2Client ec2 = Ec2Client.builder().region(REGION).build();
-
     // State
     private static final ConcurrentHashMap<String, JobInfo> jobs = new ConcurrentHashMap<>();
+    private static final Set<String> requests = ConcurrentHashMap.newKeySet(); // Unfinished jobs recovered from the journal, by requestKey
     private static volatile boolean terminateRequested = false;
-    private static final ExecutorService executor = Executors.newCachedThreadPool();
+    private static volatile boolean shutDown = false; // Set once a TERMINATE request has been fully handled
+    private static ExecutorService executor;
+    private static ScheduledExecutorService scheduler; // Progress messages, journal snapshots and worker stats
+    private static JobJournal journal = JobJournal.disabled();
+    private static ExecutorService sizeProbePool; // HEAD requests for task bundling
+
+    // Worker sizing: adaptive (CapacityPlanner) unless -Dmanager.workerSizing=fixed; single-node runs use the fixed spec
+    private static final CapacityPlanner capacity = CapacityPlanner.fromProperties();
+    private static boolean adaptiveSizing = false;
+    private static double capacityTargetSeconds = Utils.CAPACITY_TARGET_MINUTES * 60;
 
     private static String workerTaskQueueUrl;
     private static String workerResultQueueUrl;
 
+    // Metrics (served by MetricsServer when -Dmetrics.port is set)
+    private static final Metrics.Counter jobsReceived = Metrics.counter("manager_jobs_received_total", "Jobs received from local applications");
+    private static final Metrics.Counter jobsCompleted = Metrics.counter("manager_jobs_completed_total", "Jobs whose summary was sent");
+    private static final Metrics.Counter resultsProcessed = Metrics.counter("manager_results_processed_total", "Task results received from workers");
+    private static final Metrics.Counter unknownResults = Metrics.counter("manager_results_unknown_total", "Task results for jobs this manager does not know");
+    private static final Metrics.Counter duplicateResults = Metrics.counter("manager_results_duplicate_total", "Task results received again for a completed task");
+
     public static void main(String[] args) {
+        Services.install(
+                new SqsQueueService(Utils.REGION),
+                new S3BlobStore(Utils.REGION, Utils.S3_BUCKET_NAME),
+                new Ec2ComputeProvisioner(Utils.REGION));
+
+        MetricsServer.startFromProperties();
+        FlightRecording.startFromProperties("manager");
+        adaptiveSizing = !"fixed".equals(System.getProperty("manager.workerSizing", "adaptive"));
+        capacityTargetSeconds = 60 * Double.parseDouble(
+                System.getProperty("manager.targetMinutes", String.valueOf(Utils.CAPACITY_TARGET_MINUTES)));
+        boolean terminated = run(Paths.get(System.getProperty("manager.journal", "manager-journal")));
+        // Any other exit is a failure, so the instance's restart loop starts a new Manager
+        System.exit(terminated ? 0 : 1);
+    }
+
+    /**
+     * Runs the Manager until a TERMINATE request has been handled and all jobs are finished.
+     */
+    public static void run() {
+        run(null);
+    }
+
+    /**
+     * Like run(), journaling job state in journalDir (see JobJournal) and first recovering the jobs
+     * a previous Manager left there or in the journal snapshot.
+     * Returns true if the Manager shut down for a TERMINATE request, false if the task listener failed.
+     */
+    public static boolean run(Path journalDir) {
         System.out.println("Manager started.");
+        terminateRequested = false;
+        shutDown = false;
+        executor = Executors.newCachedThreadPool();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "manager-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sizeProbePool = Executors.newFixedThreadPool(16, runnable -> {
+            Thread thread = new Thread(runnable, "manager-size-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(Manager::reportProgress,
+                Utils.PROGRESS_INTERVAL_SECONDS, Utils.PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
 
         // Initialize Queues
         setupQueues();
+        registerMetrics();
+        if (adaptiveSizing) {
+            capacity.loadStats();
+            // Not saved while planning: scaleWorkers holds the class lock, and an upload would block other jobs
+            scheduler.scheduleWithFixedDelay(capacity::saveStats,
+                    Utils.WORKER_STATS_SAVE_SECONDS, Utils.WORKER_STATS_SAVE_SECONDS, TimeUnit.SECONDS);
+        }
+
+        journal = journalDir != null ? JobJournal.open(journalDir) : JobJournal.disabled();
+        if (journalDir != null) {
+            recoverJobs();
+            journal.snapshot();
+            scheduler.scheduleWithFixedDelay(journal::snapshot,
+                    Utils.JOURNAL_SNAPSHOT_SECONDS, Utils.JOURNAL_SNAPSHOT_SECONDS, TimeUnit.SECONDS);
+        }
 
         // Start threads
-        Thread taskListener = new Thread(Manager::listenForTasks);
-        Thread resultListener = new Thread(Manager::listenForResults);
+        Thread taskListener = new Thread(Manager::listenForTasks, "manager-tasks");
+        Thread resultListener = new Thread(Manager::listenForResults, "manager-results");
+        // The result listener may still be long-polling when the queues are deleted on shutdown
+        resultListener.setDaemon(true);
 
         taskListener.start();
         resultListener.start();
 
         try {
             taskListener.join();
-            resultListener.join();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
         
-        System.out.println("Manager terminated.");
+        System.out.println(shutDown ? "Manager terminated." : "Manager stopped without a TERMINATE request.");
+        return shutDown;
     }
 
-    private static void setupQueues() {
-        workerTaskQueueUrl = createQueue(Utils.WORKER_TASK_QUEUE_NAME);
-        workerResultQueueUrl = createQueue(Utils.WORKER_RESULT_QUEUE_NAME);
+    static void setupQueues() {
+        workerTaskQueueUrl = Services.queues().createQueue(Utils.WORKER_TASK_QUEUE_NAME);
+        workerResultQueueUrl = Services.queues().createQueue(Utils.WORKER_RESULT_QUEUE_NAME);
     }
 
-    private static String createQueue(String queueName) {
-        try {
-            return sqs.createQueue(CreateQueueRequest.builder().queueName(queueName).build()).queueUrl();
-        } catch (Exception e) {
-            return sqs.getQueueUrl(GetQueueUrlRequest.builder().queueName(queueName).build()).queueUrl();
+    private static void registerMetrics() {
+        Metrics.rate("manager_results_per_second", "Task results received per second over the last minute", resultsProcessed);
+        Metrics.gauge("manager_jobs_active", "Jobs in progress", jobs::size);
+        Metrics.gauge("manager_tasks_in_flight", "Dispatched tasks without a result, over all jobs",
+                () -> jobs.values().stream().mapToInt(job -> job.totalTasks - job.completedTasks.get()).sum());
+        Metrics.labeledGauge("manager_job_tasks_completed", "Completed tasks per job", "job", () -> jobProgress(false));
+        Metrics.labeledGauge("manager_job_tasks_total", "Total tasks per job", "job", () -> jobProgress(true));
+
+        // Backlog and worker count come from SQS and EC2, so scrapes reuse them for a few seconds
+        Map<String, String> queueUrls = new LinkedHashMap<>();
+        queueUrls.put(Utils.WORKER_TASK_QUEUE_NAME, workerTaskQueueUrl);
+        queueUrls.put(Utils.WORKER_RESULT_QUEUE_NAME, workerResultQueueUrl);
+        Metrics.labeledGauge("manager_queue_backlog", "Messages waiting in each queue", "queue", Metrics.cached(() -> {
+            Map<String, Integer> backlog = new LinkedHashMap<>();
+            queueUrls.forEach((name, url) -> backlog.put(name, Services.queues().getApproximateMessageCount(url)));
+            return backlog;
+        }, 5000));
+        Metrics.labeledGauge("manager_queue_in_flight", "Messages received but not yet deleted in each queue", "queue", Metrics.cached(() -> {
+            Map<String, Integer> inFlight = new LinkedHashMap<>();
+            queueUrls.forEach((name, url) -> inFlight.put(name, Services.queues().getApproximateInFlightCount(url)));
+            return inFlight;
+        }, 5000));
+        Metrics.gauge("manager_workers_active", "Running or pending workers",
+                Metrics.cached(() -> Services.compute().getActiveWorkerCount(), 30000));
+    }
+
+    private static Map<String, Integer> jobProgress(boolean total) {
+        Map<String, Integer> progress = new TreeMap<>();
+        for (JobInfo job : jobs.values()) {
+            progress.put(job.id, total ? job.totalTasks : job.completedTasks.get());
         }
+        return progress;
     }
 
     // --- Task Listener (From LocalApp) ---
 
     private static void listenForTasks() {
-        String queueUrl = createQueue(Utils.MANAGER_TASK_QUEUE_NAME);
+        QueueService sqs = Services.queues();
+        String queueUrl = sqs.createQueue(Utils.MANAGER_TASK_QUEUE_NAME);
         System.out.println("Listening for tasks on " + queueUrl);
 
+        int failures = 0;
         while (!terminateRequested || !jobs.isEmpty()) {
             if (terminateRequested && jobs.isEmpty()) break;
 
-            ReceiveMessageResponse response = sqs.receiveMessage(ReceiveMessageRequest.builder()
-                    .queueUrl(queueUrl)
-                    .maxNumberOfMessages(1)
-                    .waitTimeSeconds(20)
-                    .build());
+            // Batch submissions arrive many jobs at a time
+            List<QueueMessage> messages;
+            try {
+                messages = sqs.receiveMessages(queueUrl, 10, 20, Utils.MANAGER_TASK_VISIBILITY_SECONDS);
+                failures = 0;
+            } catch (Exception e) {
+                System.err.println("Failed to receive tasks: " + e.getMessage());
+                backoff(++failures);
+                continue;
+            }
 
-            for (Message message : response.messages()) {
+            for (QueueMessage message : messages) {
                 String body = message.body();
                 System.out.println("Received task message: " + body);
+                Runnable delete = () -> sqs.deleteMessage(queueUrl, message.receiptHandle());
                 
                 if (body.equals("TERMINATE")) {
                     System.out.println("Termination requested.");
+                    journal.append("TERMINATE");
                     terminateRequested = true;
+                    delete.run();
                 } else if (!terminateRequested) {
-                    // Process new job
-                    executor.submit(() -> processNewJob(body));
+                    // Process new job; the message is deleted once the job is journaled
+                    executor.submit(() -> processNewJob(body, delete));
+                } else {
+                    delete.run();
                 }
-
-                // Delete message
-                sqs.deleteMessage(DeleteMessageRequest.builder()
-                        .queueUrl(queueUrl)
-                        .receiptHandle(message.receiptHandle())
-                        .build());
             }
         }
         
         System.out.println("Task listener stopping...");
         shutdownSystem();
+        shutDown = true;
+    }
+
+    // Waits 1, 2, 4 ... up to 30 seconds after consecutive queue failures
+    private static void backoff(int failures) {
+        try {
+            Thread.sleep(Math.min(30000L, 1000L << Math.min(failures - 1, 5)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    private static void processNewJob(String messageBody) {
-        // Format: "TASK \t inputFileKey \t n \t replyQueueUrl"
+    private static void processNewJob(String messageBody, Runnable acknowledge) {
+        // Format: "TASK \t inputFileKey \t n \t replyQueueUrl \t TRACE" (TRACE is optional)
         String[] parts = messageBody.split("\t");
-        if (parts.length < 4 || !parts[0].equals("TASK")) return;
+        if (parts.length < 4 || !parts[0].equals("TASK")) {
+            acknowledge.run();
+            return;
+        }
 
+        String jobId = UUID.randomUUID().toString();
         String inputFileKey = parts[1];
-        int n = Integer.parseInt(parts[2]);
         String replyQueueUrl = parts[3];
-        String jobId = UUID.randomUUID().toString();
+        // A Manager that crashed after journaling the job but before deleting the request gets it again
+        if (requests.contains(requestKey(inputFileKey, replyQueueUrl))) {
+            System.out.println("Ignoring repeated request for " + inputFileKey);
+            acknowledge.run();
+            return;
+        }
 
-        System.out.println("Processing job " + jobId + " for " + inputFileKey);
+        int n;
+        List<String> tasks;
+        Trace trace;
+        JobInfo job;
+        FlightEvents.JobDispatch dispatch = new FlightEvents.JobDispatch();
+        // Until the job is journaled, a crash must leave the request in the queue for the next Manager
+        try {
+            n = Integer.parseInt(parts[2]);
+            trace = (parts.length > 4 ? Trace.decode(parts[4]) : new Trace(jobId)).mark(Trace.JOB_RECEIVED);
+
+            System.out.println("Processing job " + jobId + " for " + inputFileKey);
+            jobsReceived.increment();
+            dispatch.jobId = jobId;
+            dispatch.inputKey = inputFileKey;
+            dispatch.begin();
+
+            // Download input file
+            tasks = readTasks(inputFileKey);
+            if (tasks == null) {
+                failRequest(jobId, inputFileKey, replyQueueUrl, "input file " + inputFileKey + " could not be read");
+                return;
+            }
+            trace.mark(Trace.INPUT_DOWNLOADED);
+
+            job = createJob(jobId, inputFileKey, replyQueueUrl, n, tasks.size(), trace);
+            job.countTaskTypes(tasks);
+        } catch (RuntimeException e) {
+            failRequest(jobId, inputFileKey, replyQueueUrl, e.toString());
+            return;
+        } finally {
+            acknowledge.run();
+        }
 
-        // Download input file
+        if (tasks.isEmpty()) {
+            finishJob(jobId);
+            return;
+        }
+
+        // Create Worker Tasks
+        int messages = dispatchTasks(job, tasks);
+        dispatch.tasks = tasks.size();
+        dispatch.commit();
+
+        // Scale Workers
+        scaleWorkers(messages, n);
+    }
+
+    private static String requestKey(String inputFileKey, String replyQueueUrl) {
+        return inputFileKey + "\t" + replyQueueUrl;
+    }
+
+    /**
+     * Answers a request that could not become a job, or a job whose summary could not be published, so its
+     * Local Application does not wait forever: an error summary and "DONE \t inputFileKey \t summaryKey \t 0 \t ERROR".
+     * Returns false if even that could not be sent.
+     */
+    private static boolean failRequest(String jobId, String inputFileKey, String replyQueueUrl, String reason) {
+        String error = reason.replaceAll("\\s+", " ");
+        System.err.println("Job " + jobId + " for " + inputFileKey + " failed: " + error);
+        String key = "output/" + jobId + ".html";
+        try {
+            Services.blobs().putBytes(key, ("<html><body><p>Job failed: " + error + "</p></body></html>").getBytes());
+            Services.queues().sendMessage(replyQueueUrl, String.join("\t", "DONE", inputFileKey, key, "0", error));
+            return true;
+        } catch (Exception e) {
+            System.err.println("Failed to report the failure of job " + jobId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Downloads the input file and returns its tasks, or null if it could not be read.
+     */
+    private static List<String> readTasks(String inputFileKey) {
         List<String> lines = downloadAndReadInput(inputFileKey);
-        if (lines == null) return; // Error handling
+        if (lines == null) return null;
 
-        JobInfo job = new JobInfo(jobId, replyQueueUrl, lines.size());
+        // Line format: "ANALYSIS_TYPE \t URL" (from assignment description)
+        // Lines without a tab can never produce a result, so they are not counted as tasks.
+        return lines.stream()
+                .filter(line -> line.contains("\t"))
+                .collect(Collectors.toList());
+    }
+
+    // Package-private (like processResult, finishJob and setupQueues) for the JMH benchmarks (pom-bench.xml)
+    static void createJob(String jobId, String replyQueueUrl, int totalTasks) {
+        createJob(jobId, jobId, replyQueueUrl, 1, totalTasks, new Trace(jobId));
+    }
+
+    private static JobInfo createJob(String jobId, String inputFileKey, String replyQueueUrl, int n, int totalTasks, Trace trace) {
+        JobInfo job = new JobInfo(jobId, inputFileKey, replyQueueUrl, n, totalTasks, trace);
+        journal.append("CREATE", jobId, inputFileKey, replyQueueUrl, String.valueOf(n), String.valueOf(totalTasks), trace.encode());
         jobs.put(jobId, job);
+        return job;
+    }
 
-        // Create Worker Tasks
-        for (String line : lines) {
-            // Line format: "ANALYSIS_TYPE \t URL" (from assignment description)
-            // We need to send: "ANALYSIS_TYPE \t URL \t JOB_ID"
-            // Or maybe JSON? Let's stick to tabs.
-            // Check if line is valid
-            if (!line.contains("\t")) continue; // Skip invalid lines? or count as error?
-            // If skipped, we need to adjust total tasks or mark as failed immediately.
-            // For simplicity, assume valid or Worker handles it.
-            
-            sqs.sendMessage(SendMessageRequest.builder()
-                    .queueUrl(workerTaskQueueUrl)
-                    .messageBody(line + "\t" + jobId)
-                    .build());
+    /**
+     * Sends the job's tasks that were not dispatched yet and returns the number of messages sent.
+     * Each task is sent as "ANALYSIS_TYPE \t URL \t JOB_ID \t TRACE \t TASK_INDEX". Small documents are packed
+     * several to a message (one task per line) so a worker pays the queue round trips once.
+     */
+    private static int dispatchTasks(JobInfo job, List<String> tasks) {
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            if (!job.dispatched.get(i)) pending.add(i);
+        }
+        List<Long> sizes = estimateDocumentSizes(pending.stream().map(tasks::get).collect(Collectors.toList()));
+
+        List<List<Integer>> messages = packBundles(sizes);
+        for (List<Integer> message : messages) {
+            List<String> lines = new ArrayList<>();
+            List<Integer> taskIndexes = new ArrayList<>();
+            for (int p : message) {
+                int i = pending.get(p);
+                lines.add(String.join("\t", tasks.get(i), job.id,
+                        job.trace.child(String.valueOf(i)).mark(Trace.DISPATCHED).encode(), String.valueOf(i)));
+                taskIndexes.add(i);
+            }
+            sendWorkerTask(job, String.join("\n", lines), taskIndexes);
         }
 
-        // Scale Workers
-        scaleWorkers(lines.size(), n);
+        System.out.println("Job " + job.id + ": dispatched " + pending.size() + " tasks in " + messages.size() + " messages");
+        return messages.size();
+    }
+
+    /**
+     * Groups documents into worker messages by their estimated sizes (-1 if unknown), returning the positions
+     * in sizes that go into each message. Small documents are packed in order, up to BUNDLE_MAX_TASKS and
+     * BUNDLE_MAX_BYTES per message. Package-private for ManagerTest.
+     */
+    static List<List<Integer>> packBundles(List<Long> sizes) {
+        List<List<Integer>> messages = new ArrayList<>();
+        List<Integer> bundle = new ArrayList<>();
+        long bundledBytes = 0;
+
+        for (int p = 0; p < sizes.size(); p++) {
+            long size = sizes.get(p);
+
+            // Unknown or large documents go alone - bundling them would only serialize slow work
+            if (size < 0 || size > Utils.BUNDLE_SMALL_DOCUMENT_BYTES) {
+                messages.add(Collections.singletonList(p));
+                continue;
+            }
+
+            if (!bundle.isEmpty() && (bundle.size() >= Utils.BUNDLE_MAX_TASKS || bundledBytes + size > Utils.BUNDLE_MAX_BYTES)) {
+                messages.add(bundle);
+                bundle = new ArrayList<>();
+                bundledBytes = 0;
+            }
+            bundle.add(p);
+            bundledBytes += size;
+        }
+
+        if (!bundle.isEmpty()) {
+            messages.add(bundle);
+        }
+        return messages;
+    }
+
+    private static void sendWorkerTask(JobInfo job, String body, List<Integer> taskIndexes) {
+        Services.queues().sendMessage(workerTaskQueueUrl, body);
+        // Journaled after the send: a crash in between sends the tasks again, and the duplicate results are ignored
+        job.markDispatched(taskIndexes);
+        journal.append("DISPATCHED", job.id, taskIndexes.stream().map(String::valueOf).collect(Collectors.joining(",")));
+    }
+
+    /**
+     * Estimates the size of each task's document with a HEAD request.
+     * Returns -1 for documents whose size could not be determined, including all not probed within BUNDLE_PROBE_SECONDS.
+     */
+    private static List<Long> estimateDocumentSizes(List<String> tasks) {
+        List<Future<Long>> futures = new ArrayList<>();
+        for (String task : tasks) {
+            String url = task.split("\t")[1];
+            futures.add(sizeProbePool.submit(() -> estimateDocumentSize(url)));
+        }
+
+        // Slow hosts must not hold up the whole job; their documents are sent alone
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Utils.BUNDLE_PROBE_SECONDS);
+        List<Long> sizes = new ArrayList<>();
+        int timedOut = 0;
+        for (Future<Long> future : futures) {
+            try {
+                sizes.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                sizes.add(-1L);
+                timedOut++;
+            } catch (Exception e) {
+                sizes.add(-1L);
+            }
+        }
+        if (timedOut > 0) {
+            System.out.println("Size probe deadline passed, " + timedOut + " documents sent unbundled");
+        }
+        return sizes;
+    }
+
+    private static long estimateDocumentSize(String urlStr) {
+        try {
+            URL url = new URL(urlStr);
+            if (url.getProtocol().equals("file")) {
+                return new File(url.toURI()).length();
+            }
+
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("HEAD");
+            connection.setConnectTimeout(2000);
+            connection.setReadTimeout(2000);
+            try {
+                return connection.getResponseCode() == 200 ? connection.getContentLengthLong() : -1;
+            } finally {
+                connection.disconnect();
+            }
+        } catch (Exception e) {
+            return -1;
+        }
     }
 
     private static List<String> downloadAndReadInput(String key) {
@@ -158,10 +465,7 @@ public class Manager {
             File temp = File.createTempFile("input", ".txt");
             temp.delete(); // Delete it so S3 client can create it fresh
             
-            s3.getObject(GetObjectRequest.builder()
-                    .bucket(Utils.S3_BUCKET_NAME)
-                    .key(key)
-                    .build(), temp.toPath());
+            Services.blobs().getFile(key, temp.toPath());
             return Files.readAllLines(temp.toPath());
         } catch (Exception e) {
             e.printStackTrace();
@@ -169,10 +473,11 @@ public class Manager {
         }
     }
 
-    private static synchronized void scaleWorkers(int numTasks, int n) {
+    // Counts worker messages, not tasks: a bundle of small documents is one message and about one document's work
+    private static synchronized void scaleWorkers(int numMessages, int n) {
         // Check active workers
-        int currentWorkers = getActiveWorkerCount();
-        int neededWorkers = (numTasks + n - 1) / n; // ceil(numTasks / n)
+        int currentWorkers = Services.compute().getActiveWorkerCount();
+        int neededWorkers = (numMessages + n - 1) / n; // ceil(numMessages / n)
         
         // "If there are k active workers, and the new job requires m workers, then the manager should create m-k new workers, if possible."
         // "manager should create a worker for every n messages"
@@ -185,120 +490,296 @@ public class Manager {
             int limit = Utils.MAX_WORKERS - currentWorkers;
             int actualToCreate = Math.min(workersToCreate, limit);
             
+            WorkerSpec spec = WorkerSpec.DEFAULT;
+            if (actualToCreate > 0 && adaptiveSizing) {
+                // The count above is the most to start; larger instances, or running workers with capacity to spare, need fewer
+                CapacityPlanner.Plan plan = capacity.plan(backlogByType(), currentWorkers, actualToCreate, capacityTargetSeconds);
+                System.out.println(plan);
+                actualToCreate = plan.count();
+                spec = plan.spec();
+            }
+
             if (actualToCreate > 0) {
-                System.out.println("Starting " + actualToCreate + " workers...");
-                startWorkers(actualToCreate);
+                System.out.println("Starting " + actualToCreate + " workers (" + spec + ")...");
+                Services.compute().startWorkers(actualToCreate, spec);
+                capacity.launched(spec);
             }
         }
     }
 
-    private static int getActiveWorkerCount() {
-        Filter tagFilter = Filter.builder().name("tag:" + Utils.TAG_KEY_ROLE).values(Utils.TAG_VALUE_WORKER).build();
-        Filter stateFilter = Filter.builder().name("instance-state-name").values("running", "pending").build();
-        
-        DescribeInstancesResponse response = ec2.describeInstances(DescribeInstancesRequest.builder()
-                .filters(tagFilter, stateFilter)
-                .build());
-                
-        return response.reservations().stream().mapToInt(r -> r.instances().size()).sum();
+    // Remaining tasks of all jobs per analysis type; "UNKNOWN" for recovered jobs whose input was not read again
+    private static Map<String, Double> backlogByType() {
+        Map<String, Double> backlog = new TreeMap<>();
+        for (JobInfo job : jobs.values()) {
+            int known = 0;
+            for (Map.Entry<String, AtomicInteger> remaining : job.remainingByType.entrySet()) {
+                backlog.merge(remaining.getKey(), (double) remaining.getValue().get(), Double::sum);
+                known += remaining.getValue().get();
+            }
+            int unknown = job.totalTasks - job.completedTasks.get() - known;
+            if (unknown > 0) {
+                backlog.merge("UNKNOWN", (double) unknown, Double::sum);
+            }
+        }
+        return backlog;
     }
 
-    private static void startWorkers(int count) {
-        // User Data for Worker
-        String userDataScript = "#!/bin/bash\n" +
-        // 1. Create directory for models
-        "mkdir -p /home/ec2-user/stanford\n" +
-        
-        // 2. Download the Model File (One time download)
-        "aws s3 cp s3://" + Utils.S3_BUCKET_NAME + "/stanford/englishPCFG.ser.gz /home/ec2-user/stanford/englishPCFG.ser.gz\n" +
-        
-        // 3. Download the Tiny Worker JAR
-        // "aws s3 cp s3://" + Utils.S3_BUCKET_NAME + "/worker.jar /home/ec2-user/worker.jar\n" + 
-        
-        // 4. Run Java (No change to memory flag needed, but it loads faster now)
-        "java -Xmx6000m -jar /home/ec2-user/worker.jar\n";
-        
-        String userDataEncoded = Base64.getEncoder().encodeToString(userDataScript.getBytes());
-
-        TagSpecification tagSpec = TagSpecification.builder()
-                .resourceType(ResourceType.INSTANCE)
-                .tags(Tag.builder().key(Utils.TAG_KEY_ROLE).value(Utils.TAG_VALUE_WORKER).build())
-                .build();
-
-        RunInstancesRequest runRequest = RunInstancesRequest.builder()
-                .imageId(WORKER_AMI_ID)
-                .instanceType(InstanceType.T3_LARGE)
-                .keyName("vockey")
-                .maxCount(count)
-                .minCount(count)
-                .userData(userDataEncoded)
-                .tagSpecifications(tagSpec)
-                .iamInstanceProfile(IamInstanceProfileSpecification.builder().name("LabInstanceProfile").build())
-                .build();
+    // --- Progress (To LocalApp) ---
 
-        try {
-            ec2.runInstances(runRequest);
-        } catch (Exception e) {
-            System.err.println("Failed to start workers: " + e.getMessage());
+    // Package-private for ManagerBenchmark, which sends the streamed results before timing finishJob
+    static void reportProgress() {
+        for (JobInfo job : jobs.values()) {
+            sendProgress(job);
         }
     }
 
+    /**
+     * Sends the job's new results to its reply queue, at most PROGRESS_MAX_RESULTS and PROGRESS_MAX_BYTES per message:
+     * "PROGRESS \t inputFileKey \t completed \t total \t failed \t taskIndex,taskIndex,..." followed by one
+     * TaskResult per line, in the order of the indexes (-1 for a result without one).
+     * Best effort - the summary stays the complete record.
+     */
+    private static void sendProgress(JobInfo job) {
+        synchronized (job) {
+            List<TaskResult> batch = job.drainNewResults();
+            int completed = job.completedTasks.get();
+            if (batch.isEmpty() && completed == job.reportedTasks) return;
+            job.reportedTasks = completed;
+
+            String header = String.join("\t", "PROGRESS", job.inputFileKey,
+                    String.valueOf(completed), String.valueOf(job.totalTasks), String.valueOf(job.failedTasks.get()));
+            try {
+                // Error messages and URLs make results vary a lot in size, so the count alone does not bound the message
+                StringBuilder lines = new StringBuilder();
+                StringBuilder indexes = new StringBuilder();
+                int bodyBytes = utf8Length(header) + 1;
+                int results = 0;
+                for (TaskResult result : batch) {
+                    String line = result.encode();
+                    String index = String.valueOf(result.taskIndex());
+                    int lineBytes = 1 + utf8Length(line) + 1 + index.length();
+                    if (results > 0 && (results >= Utils.PROGRESS_MAX_RESULTS || bodyBytes + lineBytes > Utils.PROGRESS_MAX_BYTES)) {
+                        Services.queues().sendMessage(job.replyQueueUrl, header + "\t" + indexes + lines);
+                        lines = new StringBuilder();
+                        indexes = new StringBuilder();
+                        bodyBytes = utf8Length(header) + 1;
+                        results = 0;
+                    }
+                    if (results > 0) indexes.append(",");
+                    indexes.append(index);
+                    lines.append("\n").append(line);
+                    bodyBytes += lineBytes;
+                    results++;
+                }
+                Services.queues().sendMessage(job.replyQueueUrl, header + "\t" + indexes + lines);
+            } catch (Exception e) {
+                System.err.println("Failed to send progress for job " + job.id + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static int utf8Length(String text) {
+        return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
     // --- Result Listener (From Workers) ---
 
     private static void listenForResults() {
         System.out.println("Listening for results on " + workerResultQueueUrl);
         
+        int failures = 0;
         while (!terminateRequested || !jobs.isEmpty()) {
-            ReceiveMessageResponse response = sqs.receiveMessage(ReceiveMessageRequest.builder()
-                    .queueUrl(workerResultQueueUrl)
-                    .maxNumberOfMessages(10)
-                    .waitTimeSeconds(20)
-                    .build());
+            List<QueueMessage> messages;
+            try {
+                messages = Services.queues().receiveMessages(workerResultQueueUrl, 10, 20, 0);
+                failures = 0;
+            } catch (Exception e) {
+                if (terminateRequested) break; // Queues are deleted on shutdown
+                System.err.println("Failed to receive results: " + e.getMessage());
+                backoff(++failures);
+                continue;
+            }
 
-            for (Message message : response.messages()) {
+            for (QueueMessage message : messages) {
                 executor.submit(() -> processResult(message));
             }
         }
     }
 
-    private static void processResult(Message message) {
-        // Body: "JOB_ID \t INPUT_URL \t OUTPUT_S3_URL \t ANALYSIS_TYPE \t [ERROR]"
-        String body = message.body();
-        String[] parts = body.split("\t");
+    static void processResult(QueueMessage message) {
+        // Body: one result per line (a bundled task replies with all its results at once)
+        // Line: "JOB_ID \t INPUT_URL \t OUTPUT_S3_URL \t ANALYSIS_TYPE \t TRACE \t TASK_INDEX" (TRACE and TASK_INDEX are optional)
+        // Last line: the Worker's stats (see WorkerStats), if it reports them
+        for (String line : message.body().split("\n")) {
+            if (line.startsWith(WorkerStats.PREFIX + "\t")) {
+                updateWorkerStats(line);
+            } else {
+                processResultLine(line);
+            }
+        }
+
+        Services.queues().deleteMessage(workerResultQueueUrl, message.receiptHandle());
+    }
+
+    private static void updateWorkerStats(String line) {
+        try {
+            capacity.update(WorkerStats.parse(line));
+        } catch (RuntimeException e) {
+            System.err.println("Ignoring malformed worker stats: " + line);
+        }
+    }
+
+    private static void processResultLine(String line) {
+        String[] parts = line.split("\t");
         String jobId = parts[0];
         
         JobInfo job = jobs.get(jobId);
+        resultsProcessed.increment();
         if (job != null) {
-            // Construct HTML line
-            // Format: <analysis type>: <input file> <output file>
-            // Or exception: <analysis type>: <input file> <exception>
+            // A task sent again after a Manager restart, or a redelivered result message
+            int taskIndex = parts.length > 5 ? Integer.parseInt(parts[5]) : -1;
+            if (!job.markCompleted(taskIndex)) {
+                duplicateResults.increment();
+                return;
+            }
+
             String analysisType = parts[3];
             String inputUrl = parts[1];
             String outputOrError = parts[2];
+            String encodedTrace = parts.length > 4 ? parts[4] : "";
+            TaskResult result = new TaskResult(analysisType, inputUrl, outputOrError, taskIndex);
+            job.taskFinished(analysisType);
+            journal.append("RESULT", jobId, String.valueOf(taskIndex), analysisType, inputUrl, outputOrError, encodedTrace);
+
+            if (result.failed()) {
+                job.failedTasks.incrementAndGet();
+            }
+            if (!encodedTrace.isEmpty()) {
+                job.addTaskTrace(Trace.decode(encodedTrace).mark(Trace.RESULT_RECEIVED));
+            }
             
-            // Determine if error (basic heuristic or explicit flag?)
-            // Worker logic will put S3 URL or error text.
-            // HTML format logic:
-            String htmlLine = "<p>" + analysisType + ": " + inputUrl + " " + outputOrError + "</p>";
-            
-            job.addResult(htmlLine);
-            
-            if (job.isFinished()) {
+            // Only the thread that completes the last task finishes the job
+            if (job.addResult(resultHtml(result), result)) {
                 finishJob(jobId);
             }
         } else {
             System.out.println("Received result for unknown job: " + jobId);
+            unknownResults.increment();
         }
+    }
 
-        sqs.deleteMessage(DeleteMessageRequest.builder()
-                .queueUrl(workerResultQueueUrl)
-                .receiptHandle(message.receiptHandle())
-                .build());
+    // Format: <analysis type>: <input file> <output file>
+    // Or exception: <analysis type>: <input file> <exception>
+    private static String resultHtml(TaskResult result) {
+        return "<p>" + result.analysisType() + ": " + result.inputUrl() + " " + result.output() + "</p>";
     }
 
-    private static void finishJob(String jobId) {
-        JobInfo job = jobs.remove(jobId);
+    // --- Recovery (From the JobJournal) ---
+
+    /**
+     * Rebuilds the jobs a previous Manager left in the journal. Their results are kept, complete jobs are summarized,
+     * and only tasks that were never dispatched are sent to workers - the rest are still in the worker queues.
+     * From the snapshot, dispatched tasks without a result are sent again too: their results may have arrived
+     * after the snapshot and been deleted from the result queue.
+     */
+    private static void recoverJobs() {
+        long start = System.nanoTime();
+        int recoveredResults = 0;
+        for (String record : journal.records()) {
+            String[] fields = record.split("\t", -1);
+            try {
+                JobInfo job = fields.length > 1 ? jobs.get(fields[1]) : null;
+                switch (fields[0]) {
+                    case "CREATE":
+                        job = new JobInfo(fields[1], fields[2], fields[3], Integer.parseInt(fields[4]),
+                                Integer.parseInt(fields[5]), Trace.decode(fields[6]));
+                        jobs.put(job.id, job);
+                        requests.add(requestKey(job.inputFileKey, job.replyQueueUrl));
+                        break;
+                    case "DISPATCHED":
+                        if (job == null) break;
+                        List<Integer> taskIndexes = new ArrayList<>();
+                        for (String index : fields[2].split(",")) {
+                            taskIndexes.add(Integer.parseInt(index));
+                        }
+                        job.markDispatched(taskIndexes);
+                        break;
+                    case "RESULT":
+                        TaskResult result = new TaskResult(fields[3], fields[4], fields[5], Integer.parseInt(fields[2]));
+                        String encodedTrace = fields[6];
+                        if (job == null || !job.markCompleted(Integer.parseInt(fields[2]))) break;
+                        if (result.failed()) {
+                            job.failedTasks.incrementAndGet();
+                        }
+                        if (!encodedTrace.isEmpty()) {
+                            job.addTaskTrace(Trace.decode(encodedTrace));
+                        }
+                        job.addResult(resultHtml(result), null);
+                        recoveredResults++;
+                        break;
+                    case "FINISHED":
+                        if (job == null) break;
+                        jobs.remove(job.id);
+                        requests.remove(requestKey(job.inputFileKey, job.replyQueueUrl));
+                        break;
+                    case "TERMINATE":
+                        terminateRequested = true;
+                        break;
+                    default:
+                        System.err.println("Skipping unknown journal record: " + record);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Skipping malformed journal record: " + record);
+            }
+        }
+        if (jobs.isEmpty() && !terminateRequested) return;
+
+        System.out.println(String.format(Locale.ROOT, "Recovered %d jobs and %d results from the journal in %.1f ms",
+                jobs.size(), recoveredResults, (System.nanoTime() - start) / 1e6));
+        for (JobInfo job : jobs.values()) {
+            if (journal.restoredFromSnapshot()) {
+                job.forgetDispatchedWithoutResult();
+            }
+            if (job.isFinished()) {
+                executor.submit(() -> finishJob(job.id));
+            } else if (job.dispatched.cardinality() < job.totalTasks) {
+                executor.submit(() -> resumeDispatch(job));
+            }
+        }
+    }
+
+    private static void resumeDispatch(JobInfo job) {
+        int undispatched = job.totalTasks - job.dispatched.cardinality();
+        System.out.println("Job " + job.id + ": resuming dispatch of " + undispatched + " tasks");
+        List<String> tasks = readTasks(job.inputFileKey);
+        if (tasks == null || tasks.size() != job.totalTasks) {
+            // Fail what cannot be sent so the job still finishes
+            System.err.println("Job " + job.id + ": input " + job.inputFileKey + " is gone or changed");
+            for (int i = 0; i < job.totalTasks; i++) {
+                if (job.dispatched.get(i)) continue;
+                processResultLine(String.join("\t", job.id, job.inputFileKey,
+                        "Exception: input file unavailable after Manager restart", "UNKNOWN", "", String.valueOf(i)));
+            }
+            return;
+        }
+        job.countTaskTypes(tasks);
+        scaleWorkers(dispatchTasks(job, tasks), job.n);
+    }
+
+    static void finishJob(String jobId) {
+        JobInfo job = jobs.get(jobId);
+        if (job == null) {
+            System.out.println("Job " + jobId + " is already finished");
+            return;
+        }
         System.out.println("Finishing job " + jobId);
+        job.trace.mark(Trace.SUMMARY_STARTED);
+        FlightEvents.JobSummary summary = new FlightEvents.JobSummary();
+        summary.jobId = jobId;
+        summary.tasks = job.totalTasks;
+        summary.begin();
+        TraceReport traceReport = new TraceReport(job.trace, job.taskTraces);
+        String traceKey = "output/" + jobId + ".trace.json";
         
         // Create Summary HTML
         StringBuilder html = new StringBuilder();
@@ -306,28 +787,57 @@ public class Manager {
         for (String line : job.getResults()) {
             html.append(line).append("\n");
         }
+        html.append(traceReport.toHtml());
+        html.append("<p>Trace file: ").append(Services.blobs().uri(traceKey)).append("</p>\n");
         html.append("</body></html>");
+        byte[] content = html.toString().getBytes();
+        summary.bytes = content.length;
         
-        // Upload to S3
+        // The job stays until its DONE is sent, so a failed upload or send is retried rather than lost
         String key = "output/" + jobId + ".html";
-        try {
-            File temp = File.createTempFile("summary", ".html");
-            Files.write(temp.toPath(), html.toString().getBytes());
-            
-            s3.putObject(PutObjectRequest.builder()
-                    .bucket(Utils.S3_BUCKET_NAME)
-                    .key(key)
-                    .build(), temp.toPath());
-                    
-            // Notify Local App
-            sqs.sendMessage(SendMessageRequest.builder()
-                    .queueUrl(job.replyQueueUrl)
-                    .messageBody(key)
-                    .build());
-            
-        } catch (Exception e) {
-            e.printStackTrace();
+        boolean done = false;
+        for (int attempt = 1; !done; attempt++) {
+            try {
+                // Upload to S3
+                File temp = File.createTempFile("summary", ".html");
+                Files.write(temp.toPath(), content);
+                Services.blobs().putFile(key, temp.toPath());
+                temp.delete();
+                job.trace.mark(Trace.SUMMARY_DONE);
+
+                // Export the trace (Chrome trace event format), including the summary stage
+                Services.blobs().putBytes(traceKey, traceReport.toChromeTraceJson().getBytes());
+
+                // Results not streamed yet go out before the summary
+                sendProgress(job);
+
+                // Notify Local App
+                // Format: "DONE \t inputFileKey \t summaryKey \t totalTasks"
+                Services.queues().sendMessage(job.replyQueueUrl,
+                        String.join("\t", "DONE", job.inputFileKey, key, String.valueOf(job.totalTasks)));
+                done = true;
+            } catch (Exception e) {
+                System.err.println("Failed to publish the summary of job " + jobId + " (attempt " + attempt + "): " + e);
+                if (attempt >= Utils.FINISH_MAX_ATTEMPTS) {
+                    done = failRequest(jobId, job.inputFileKey, job.replyQueueUrl, "summary could not be published: " + e);
+                    break;
+                }
+                backoff(attempt);
+            }
         }
+
+        if (done) {
+            journal.append("FINISHED", jobId);
+            jobsCompleted.increment();
+        } else {
+            // Not journaled as finished, so a restarted Manager tries again
+            System.err.println("Job " + jobId + " could not be answered; leaving it to the next Manager");
+        }
+        jobs.remove(jobId);
+        requests.remove(requestKey(job.inputFileKey, job.replyQueueUrl));
+        summary.commit();
+        job.lifetime.failedTasks = job.failedTasks.get();
+        job.lifetime.commit();
     }
 
     private static void shutdownSystem() {
@@ -336,22 +846,7 @@ public class Manager {
         // 1. Terminate Workers
         System.out.println("Terminating workers...");
         try {
-            Filter tagFilter = Filter.builder().name("tag:" + Utils.TAG_KEY_ROLE).values(Utils.TAG_VALUE_WORKER).build();
-            Filter stateFilter = Filter.builder().name("instance-state-name").values("running", "pending").build();
-            
-            DescribeInstancesResponse response = ec2.describeInstances(DescribeInstancesRequest.builder()
-                    .filters(tagFilter, stateFilter)
-                    .build());
-            
-            List<String> instanceIds = response.reservations().stream()
-                    .flatMap(r -> r.instances().stream())
-                    .map(Instance::instanceId)
-                    .collect(Collectors.toList());
-            
-            if (!instanceIds.isEmpty()) {
-                ec2.terminateInstances(TerminateInstancesRequest.builder().instanceIds(instanceIds).build());
-                System.out.println("Terminated workers: " + instanceIds);
-            }
+            Services.compute().terminateWorkers();
         } catch (Exception e) {
             System.err.println("Error terminating workers: " + e.getMessage());
         }
@@ -363,86 +858,118 @@ public class Manager {
         deleteQueueIfExists(Utils.MANAGER_TASK_QUEUE_NAME);
         
         // 3. Terminate Self (Manager Instance)
+        journal.clear(); // Nothing left to recover
+        capacity.saveStats();
+        FlightRecording.uploadSnapshot();
         System.out.println("Terminating Manager instance...");
-        String myInstanceId = getMyInstanceId();
-        if (myInstanceId != null) {
-            try {
-                ec2.terminateInstances(TerminateInstancesRequest.builder()
-                        .instanceIds(myInstanceId)
-                        .build());
-                System.out.println("Termination request sent for self: " + myInstanceId);
-            } catch (Exception e) {
-                System.err.println("Failed to terminate self: " + e.getMessage());
-            }
-        } else {
-            System.out.println("Could not determine my instance ID. Cannot terminate self.");
-        }
+        Services.compute().terminateSelf();
 
         executor.shutdown();
-        System.exit(0);
+        scheduler.shutdown();
+        sizeProbePool.shutdownNow();
     }
 
     private static void deleteQueueIfExists(String queueName) {
         try {
-            GetQueueUrlResponse response = sqs.getQueueUrl(GetQueueUrlRequest.builder().queueName(queueName).build());
-            sqs.deleteQueue(DeleteQueueRequest.builder().queueUrl(response.queueUrl()).build());
+            String queueUrl = Services.queues().getQueueUrl(queueName);
+            if (queueUrl == null) return; // Already gone, ignore
+            Services.queues().deleteQueue(queueUrl);
             System.out.println("Deleted queue: " + queueName);
-        } catch (QueueDoesNotExistException e) {
-            // Already gone, ignore
         } catch (Exception e) {
             System.err.println("Failed to delete queue " + queueName + ": " + e.getMessage());
         }
     }
     
-    private static String getMyInstanceId() {
-        try {
-            // 1. Get Token (IMDSv2)
-            URL tokenUrl = new URL("http://169.254.169.254/latest/api/token");
-            HttpURLConnection tokenConn = (HttpURLConnection) tokenUrl.openConnection();
-            tokenConn.setRequestMethod("PUT");
-            tokenConn.setRequestProperty("X-aws-ec2-metadata-token-ttl-seconds", "21600");
-            tokenConn.setConnectTimeout(1000);
-            
-            String token;
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(tokenConn.getInputStream()))) {
-                token = reader.readLine();
-            }
-    
-            // 2. Get Instance ID using Token
-            URL url = new URL("http://169.254.169.254/latest/meta-data/instance-id");
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("X-aws-ec2-metadata-token", token); // Pass the token
-            connection.setConnectTimeout(1000);
-    
-            if (connection.getResponseCode() == 200) {
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                    return reader.readLine();
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Could not retrieve Instance ID: " + e.getMessage());
-        }
-        return null;
-    }
-    
     // Helper Class
     private static class JobInfo {
         String id;
+        String inputFileKey; // Correlates reply messages with the submitted input
         String replyQueueUrl;
+        int n; // Tasks per worker requested by the local application
         int totalTasks;
+        BitSet dispatched = new BitSet(); // Task indexes sent to workers, only updated by the dispatching thread
+        BitSet completedIndexes = new BitSet(); // Guarded by the JobInfo lock
         List<String> results = Collections.synchronizedList(new ArrayList<>());
         AtomicInteger completedTasks = new AtomicInteger(0);
-
-        public JobInfo(String id, String replyQueueUrl, int totalTasks) {
+        AtomicInteger failedTasks = new AtomicInteger(0);
+        Trace trace;
+        FlightEvents.JobCompleted lifetime = new FlightEvents.JobCompleted();
+        List<Trace> taskTraces = Collections.synchronizedList(new ArrayList<>());
+        List<TaskResult> newResults = new ArrayList<>(); // Not yet sent in a progress message
+        volatile Map<String, AtomicInteger> remainingByType = new ConcurrentHashMap<>(); // Capacity planning backlog
+        int reportedTasks; // Guarded by the JobInfo lock, like newResults
+
+        public JobInfo(String id, String inputFileKey, String replyQueueUrl, int n, int totalTasks, Trace trace) {
             this.id = id; // Used for debugging or tracking if needed
+            this.inputFileKey = inputFileKey;
             this.replyQueueUrl = replyQueueUrl;
+            this.n = n;
             this.totalTasks = totalTasks;
+            this.trace = trace;
+            lifetime.jobId = id;
+            lifetime.tasks = totalTasks;
+            lifetime.begin();
+        }
+
+        public void addTaskTrace(Trace taskTrace) {
+            taskTraces.add(taskTrace);
+        }
+
+        /**
+         * Counts the tasks without a result per analysis type.
+         */
+        public synchronized void countTaskTypes(List<String> tasks) {
+            Map<String, AtomicInteger> remaining = new ConcurrentHashMap<>();
+            for (int i = 0; i < tasks.size(); i++) {
+                if (completedIndexes.get(i)) continue;
+                remaining.computeIfAbsent(tasks.get(i).split("\t")[0], k -> new AtomicInteger()).incrementAndGet();
+            }
+            remainingByType = remaining;
+        }
+
+        public void taskFinished(String analysisType) {
+            AtomicInteger remaining = remainingByType.get(analysisType);
+            if (remaining != null) remaining.decrementAndGet();
+        }
+
+        public synchronized void forgetDispatchedWithoutResult() {
+            dispatched = (BitSet) completedIndexes.clone();
+        }
+
+        public synchronized void markDispatched(List<Integer> taskIndexes) {
+            for (int index : taskIndexes) {
+                dispatched.set(index);
+            }
         }
 
-        public void addResult(String result) {
+        /**
+         * Returns false if the task already has a result. Results without a task index (older workers) are all accepted.
+         */
+        public synchronized boolean markCompleted(int taskIndex) {
+            if (taskIndex < 0) return true;
+            if (completedIndexes.get(taskIndex)) return false;
+            completedIndexes.set(taskIndex);
+            return true;
+        }
+
+        /**
+         * Records a result (taskResult is null for recovered results, which are not streamed again).
+         * Returns true for the result that completes the job.
+         */
+        public boolean addResult(String result, TaskResult taskResult) {
             results.add(result);
-            completedTasks.incrementAndGet();
+            if (taskResult != null) {
+                synchronized (this) {
+                    newResults.add(taskResult);
+                }
+            }
+            return completedTasks.incrementAndGet() == totalTasks;
+        }
+
+        public synchronized List<TaskResult> drainNewResults() {
+            List<TaskResult> drained = newResults;
+            newResults = new ArrayList<>();
+            return drained;
         }
 
         public boolean isFinished() {
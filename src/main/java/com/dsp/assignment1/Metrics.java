@@ -0,0 +1,378 @@
+package com.dsp.assignment1;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide metrics registry, exposed by MetricsServer in Prometheus text format and as JSON.
+ * Counters and histograms are LongAdder based so recording on the parse path never contends;
+ * gauges are only evaluated when the endpoint is scraped.
+ */
+public class Metrics {
+    // Sorted by name so the output is stable between scrapes
+    private static final Map<String, Metric> registry = new ConcurrentSkipListMap<>();
+
+    public static Counter counter(String name, String help) {
+        return (Counter) registry.computeIfAbsent(name, k -> new Counter(help));
+    }
+
+    public static Histogram histogram(String name, String help, double... bounds) {
+        return (Histogram) registry.computeIfAbsent(name, k -> new Histogram(help, bounds));
+    }
+
+    /**
+     * Registers (or replaces) a gauge evaluated on every scrape. value may return null when unknown.
+     */
+    public static void gauge(String name, String help, Supplier<? extends Number> value) {
+        registry.put(name, new Gauge(help, value));
+    }
+
+    /**
+     * Registers (or replaces) a gauge with one series per label value, e.g. per job or per queue.
+     */
+    public static void labeledGauge(String name, String help, String labelName, Supplier<Map<String, ? extends Number>> values) {
+        registry.put(name, new LabeledGauge(help, labelName, values));
+    }
+
+    /**
+     * Registers a per-second rate of counter over the last minute, sampled by MetricsServer.
+     */
+    public static void rate(String name, String help, Counter counter) {
+        registry.computeIfAbsent(name, k -> new Rate(help, counter));
+    }
+
+    public static void registerJvmMetrics() {
+        gauge("jvm_heap_used_bytes", "Used heap memory", () -> heap().getUsed());
+        gauge("jvm_heap_committed_bytes", "Committed heap memory", () -> heap().getCommitted());
+        gauge("jvm_heap_max_bytes", "Maximum heap memory", () -> heap().getMax());
+        gauge("jvm_threads_live", "Live JVM threads", () -> ManagementFactory.getThreadMXBean().getThreadCount());
+        gauge("jvm_available_processors", "Processors available to the JVM", () -> Runtime.getRuntime().availableProcessors());
+        labeledGauge("jvm_gc_collections_total", "GC collections per collector", "gc", () -> {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                counts.put(gc.getName(), gc.getCollectionCount());
+            }
+            return counts;
+        });
+        labeledGauge("jvm_gc_time_seconds_total", "GC time per collector", "gc", () -> {
+            Map<String, Double> times = new LinkedHashMap<>();
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                times.put(gc.getName(), gc.getCollectionTime() / 1000.0);
+            }
+            return times;
+        });
+    }
+
+    /**
+     * Wraps an expensive supplier (e.g. an EC2 or SQS call) so scrapes reuse its value for ttlMillis.
+     */
+    public static <T> Supplier<T> cached(Supplier<T> supplier, long ttlMillis) {
+        return new Supplier<T>() {
+            private T value;
+            private long expiresAt;
+
+            @Override
+            public synchronized T get() {
+                long now = System.currentTimeMillis();
+                if (now >= expiresAt) {
+                    try {
+                        value = supplier.get();
+                    } catch (Exception e) {
+                        value = null; // Unknown until the next successful call
+                    }
+                    expiresAt = now + ttlMillis;
+                }
+                return value;
+            }
+        };
+    }
+
+    static void sampleRates() {
+        long now = System.nanoTime();
+        for (Metric metric : registry.values()) {
+            if (metric instanceof Rate) {
+                ((Rate) metric).sample(now);
+            }
+        }
+    }
+
+    public static String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Metric> e : registry.entrySet()) {
+            Metric metric = e.getValue();
+            out.append("# HELP ").append(e.getKey()).append(' ').append(metric.help).append('\n');
+            out.append("# TYPE ").append(e.getKey()).append(' ').append(metric.type()).append('\n');
+            metric.writePrometheus(e.getKey(), out);
+        }
+        return out.toString();
+    }
+
+    public static String toJson() {
+        StringBuilder out = new StringBuilder("{");
+        boolean first = true;
+        for (Map.Entry<String, Metric> e : registry.entrySet()) {
+            if (!first) out.append(',');
+            first = false;
+            out.append("\n  \"").append(e.getKey()).append("\": ");
+            e.getValue().writeJson(out);
+        }
+        return out.append("\n}\n").toString();
+    }
+
+    private static MemoryUsage heap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    }
+
+    private static String format(Number value) {
+        if (value == null) return "NaN";
+        if (value instanceof Double || value instanceof Float) {
+            return Double.toString(value.doubleValue());
+        }
+        return value.toString();
+    }
+
+    private static String jsonValue(Number value) {
+        if (value == null) return "null";
+        double d = value.doubleValue();
+        return Double.isNaN(d) || Double.isInfinite(d) ? "null" : format(value);
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private abstract static class Metric {
+        final String help;
+
+        Metric(String help) {
+            this.help = help;
+        }
+
+        abstract String type();
+
+        abstract void writePrometheus(String name, StringBuilder out);
+
+        abstract void writeJson(StringBuilder out);
+    }
+
+    public static class Counter extends Metric {
+        private final LongAdder count = new LongAdder();
+
+        Counter(String help) {
+            super(help);
+        }
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long n) {
+            count.add(n);
+        }
+
+        public long get() {
+            return count.sum();
+        }
+
+        @Override
+        String type() {
+            return "counter";
+        }
+
+        @Override
+        void writePrometheus(String name, StringBuilder out) {
+            out.append(name).append(' ').append(get()).append('\n');
+        }
+
+        @Override
+        void writeJson(StringBuilder out) {
+            out.append(get());
+        }
+    }
+
+    /**
+     * Fixed-bucket histogram; each bucket is its own LongAdder.
+     */
+    public static class Histogram extends Metric {
+        private final double[] bounds;
+        private final LongAdder[] buckets; // Non-cumulative; the last one is +Inf
+        private final LongAdder sumMicros = new LongAdder();
+
+        Histogram(String help, double[] bounds) {
+            super(help);
+            this.bounds = bounds.clone();
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void observeNanos(long nanos) {
+            observe(nanos / 1e9);
+        }
+
+        public void observe(double value) {
+            int i = 0;
+            while (i < bounds.length && value > bounds[i]) i++;
+            buckets[i].increment();
+            sumMicros.add(Math.round(value * 1e6));
+        }
+
+        @Override
+        String type() {
+            return "histogram";
+        }
+
+        @Override
+        void writePrometheus(String name, StringBuilder out) {
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i].sum();
+                String le = i < bounds.length ? format(bounds[i]) : "+Inf";
+                out.append(name).append("_bucket{le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+            }
+            out.append(name).append("_sum ").append(format(sumMicros.sum() / 1e6)).append('\n');
+            out.append(name).append("_count ").append(cumulative).append('\n');
+        }
+
+        @Override
+        void writeJson(StringBuilder out) {
+            long count = 0;
+            out.append("{\"buckets\": {");
+            for (int i = 0; i < buckets.length; i++) {
+                count += buckets[i].sum();
+                if (i > 0) out.append(", ");
+                out.append('"').append(i < bounds.length ? format(bounds[i]) : "+Inf").append("\": ").append(count);
+            }
+            out.append("}, \"sum\": ").append(format(sumMicros.sum() / 1e6)).append(", \"count\": ").append(count).append('}');
+        }
+    }
+
+    private static class Gauge extends Metric {
+        private final Supplier<? extends Number> value;
+
+        Gauge(String help, Supplier<? extends Number> value) {
+            super(help);
+            this.value = value;
+        }
+
+        private Number read() {
+            try {
+                return value.get();
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        @Override
+        String type() {
+            return "gauge";
+        }
+
+        @Override
+        void writePrometheus(String name, StringBuilder out) {
+            out.append(name).append(' ').append(format(read())).append('\n');
+        }
+
+        @Override
+        void writeJson(StringBuilder out) {
+            out.append(jsonValue(read()));
+        }
+    }
+
+    private static class LabeledGauge extends Metric {
+        private final String labelName;
+        private final Supplier<Map<String, ? extends Number>> values;
+
+        LabeledGauge(String help, String labelName, Supplier<Map<String, ? extends Number>> values) {
+            super(help);
+            this.labelName = labelName;
+            this.values = values;
+        }
+
+        private Map<String, ? extends Number> read() {
+            try {
+                return values.get();
+            } catch (Exception e) {
+                return new LinkedHashMap<>();
+            }
+        }
+
+        @Override
+        String type() {
+            return "gauge";
+        }
+
+        @Override
+        void writePrometheus(String name, StringBuilder out) {
+            for (Map.Entry<String, ? extends Number> e : read().entrySet()) {
+                out.append(name).append('{').append(labelName).append("=\"").append(escape(e.getKey())).append("\"} ")
+                        .append(format(e.getValue())).append('\n');
+            }
+        }
+
+        @Override
+        void writeJson(StringBuilder out) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<String, ? extends Number> e : read().entrySet()) {
+                if (!first) out.append(", ");
+                first = false;
+                out.append('"').append(escape(e.getKey())).append("\": ").append(jsonValue(e.getValue()));
+            }
+            out.append('}');
+        }
+    }
+
+    /**
+     * Per-second rate over a sliding window of samples taken every MetricsServer.SAMPLE_INTERVAL_SECONDS.
+     */
+    private static class Rate extends Metric {
+        private static final long WINDOW_NANOS = 60_000_000_000L;
+
+        private final Counter counter;
+        private final Deque<long[]> samples = new ArrayDeque<>(); // {nanoTime, count}
+
+        Rate(String help, Counter counter) {
+            super(help);
+            this.counter = counter;
+        }
+
+        synchronized void sample(long now) {
+            samples.addLast(new long[]{now, counter.get()});
+            while (samples.size() > 2 && now - samples.peekFirst()[0] > WINDOW_NANOS) {
+                samples.removeFirst();
+            }
+        }
+
+        synchronized Double read() {
+            if (samples.size() < 2) return null;
+            long[] first = samples.peekFirst();
+            long[] last = samples.peekLast();
+            return (last[1] - first[1]) / ((last[0] - first[0]) / 1e9);
+        }
+
+        @Override
+        String type() {
+            return "gauge";
+        }
+
+        @Override
+        void writePrometheus(String name, StringBuilder out) {
+            out.append(name).append(' ').append(format(read())).append('\n');
+        }
+
+        @Override
+        void writeJson(StringBuilder out) {
+            out.append(jsonValue(read()));
+        }
+    }
+}
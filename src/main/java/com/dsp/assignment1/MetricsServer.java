@@ -0,0 +1,67 @@
+package com.dsp.assignment1;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the Metrics registry over HTTP:
+ *   GET /metrics       Prometheus text format
+ *   GET /metrics.json  JSON
+ * Enabled with -Dmetrics.port=PORT; binds to 127.0.0.1 unless -Dmetrics.host is set (e.g. 0.0.0.0 for a scraper).
+ */
+public class MetricsServer {
+    static final int SAMPLE_INTERVAL_SECONDS = 5;
+
+    private static HttpServer server;
+
+    /**
+     * Starts the endpoint if metrics.port is set. Safe to call more than once per JVM.
+     */
+    public static synchronized void startFromProperties() {
+        String port = System.getProperty("metrics.port");
+        if (port == null || server != null) return;
+
+        try {
+            server = HttpServer.create(new InetSocketAddress(System.getProperty("metrics.host", "127.0.0.1"), Integer.parseInt(port)), 0);
+            server.createContext("/metrics", exchange -> respond(exchange, Metrics.toPrometheus(), "text/plain; version=0.0.4; charset=utf-8"));
+            server.createContext("/metrics.json", exchange -> respond(exchange, Metrics.toJson(), "application/json"));
+            // One thread is plenty for a scraper and keeps the endpoint off the processing threads' cores
+            server.setExecutor(Executors.newSingleThreadExecutor(daemon("metrics-http")));
+            server.start();
+        } catch (IOException e) {
+            System.err.println("Failed to start metrics endpoint on port " + port + ": " + e.getMessage());
+            server = null;
+            return;
+        }
+
+        Metrics.registerJvmMetrics();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(daemon("metrics-sampler"));
+        sampler.scheduleAtFixedRate(Metrics::sampleRates, 0, SAMPLE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        System.out.println("Metrics available at http://" + server.getAddress().getHostString() + ":" + port + "/metrics");
+    }
+
+    private static void respond(HttpExchange exchange, String body, String contentType) throws IOException {
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static java.util.concurrent.ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,312 @@
+package com.dsp.assignment1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads every output listed in a job summary into a local directory, with bounded parallelism.
+ * Objects larger than one part are fetched as concurrent ranged GETs into a ".partial" file whose finished
+ * parts are listed in a ".parts" file, so an interrupted run resumes where it stopped; finished files are skipped.
+ *
+ * Writes DIR/manifest.tsv, one line per task in summary order:
+ * "STATUS \t ANALYSIS_TYPE \t INPUT_URL \t OUTPUT \t LOCAL_FILE \t BYTES" where STATUS is
+ * OK, FAILED (the task failed; OUTPUT is the error), ERROR (download failed; run again to resume)
+ * or SKIPPED (the output is not in this blob store).
+ *
+ * Usage: java -cp yourjar.jar com.dsp.assignment1.OutputFetcher summary.html outputDir [--parallelism 16] [--part-size-mb 8]
+ */
+public class OutputFetcher {
+    // "<p>ANALYSIS_TYPE: INPUT_URL OUTPUT_OR_ERROR</p>" - other summary lines (trace report) contain spaces before the colon
+    private static final Pattern RESULT_LINE = Pattern.compile("<p>([A-Z_]+): (\\S+) (.*?)</p>");
+
+    private final Path dir;
+    private final int parallelism;
+    private final int partSize;
+    private final ExecutorService pool;
+    private final AtomicInteger filesDone = new AtomicInteger();
+    private final AtomicLong bytesFetched = new AtomicLong();
+
+    public OutputFetcher(Path dir, int parallelism, int partSize) {
+        this.dir = dir;
+        this.parallelism = parallelism;
+        this.partSize = partSize;
+        this.pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "output-fetcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java -cp yourjar.jar com.dsp.assignment1.OutputFetcher summary.html outputDir [--parallelism N] [--part-size-mb N]");
+            System.exit(1);
+        }
+        int parallelism = Utils.FETCH_PARALLELISM;
+        int partSize = Utils.FETCH_PART_SIZE;
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--parallelism")) {
+                parallelism = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("--part-size-mb")) {
+                partSize = Integer.parseInt(args[i + 1]) * 1024 * 1024;
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Services.install(null, new S3BlobStore(Utils.REGION, Utils.S3_BUCKET_NAME), null);
+        int errors = new OutputFetcher(Paths.get(args[1]), parallelism, partSize).fetch(readSummary(Paths.get(args[0])));
+        System.exit(errors == 0 ? 0 : 1);
+    }
+
+    public static List<TaskResult> readSummary(Path summary) throws IOException {
+        List<TaskResult> results = new ArrayList<>();
+        Matcher matcher = RESULT_LINE.matcher(new String(Files.readAllBytes(summary), StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            results.add(new TaskResult(matcher.group(1), matcher.group(2), matcher.group(3)));
+        }
+        return results;
+    }
+
+    /**
+     * Downloads all outputs and writes the manifest. Returns the number of downloads that failed.
+     * A fetcher runs one fetch; its pool is shut down afterwards.
+     */
+    public int fetch(List<TaskResult> results) throws IOException {
+        Files.createDirectories(dir);
+        List<Entry> entries = new ArrayList<>();
+        for (TaskResult result : results) {
+            entries.add(new Entry(result));
+        }
+
+        System.out.println("Fetching " + entries.size() + " outputs into " + dir + " with " + parallelism + " connections...");
+        long start = System.nanoTime();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "output-fetcher-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int downloads = (int) entries.stream().filter(entry -> entry.key != null).count();
+        reporter.scheduleAtFixedRate(() -> printProgress(downloads, start), 5, 5, TimeUnit.SECONDS);
+
+        for (Entry entry : entries) {
+            if (entry.status == null) {
+                pool.submit(() -> start(entry));
+            }
+        }
+        for (Entry entry : entries) {
+            entry.done.join();
+        }
+        reporter.shutdown();
+        pool.shutdown();
+        printProgress(downloads, start);
+
+        StringBuilder manifest = new StringBuilder();
+        int errors = 0;
+        for (Entry entry : entries) {
+            if (entry.status.equals("ERROR")) errors++;
+            manifest.append(String.join("\t", entry.status, entry.result.analysisType(), entry.result.inputUrl(),
+                    entry.result.output(), entry.file == null ? "" : entry.file.toString(), String.valueOf(entry.bytes))).append('\n');
+        }
+        Files.write(dir.resolve("manifest.tsv"), manifest.toString().getBytes(StandardCharsets.UTF_8));
+        System.out.println("Manifest written to " + dir.resolve("manifest.tsv") + (errors > 0 ? " (" + errors + " errors, run again to resume)" : ""));
+        return errors;
+    }
+
+    private void printProgress(int total, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double megabytes = bytesFetched.get() / (1024.0 * 1024.0);
+        System.out.println(String.format(Locale.ROOT, "Fetched %d/%d outputs, %.1f MB in %.1f s (%.1f MB/s)",
+                filesDone.get(), total, megabytes, seconds, seconds > 0 ? megabytes / seconds : 0));
+    }
+
+    private void start(Entry entry) {
+        try {
+            if (Files.exists(entry.file)) {
+                entry.finish("OK", Files.size(entry.file)); // Fetched by an earlier run
+                return;
+            }
+
+            Set<Integer> doneParts = readParts(entry);
+            if (!doneParts.isEmpty()) {
+                long size = withRetries(() -> Services.blobs().size(entry.key));
+                startParts(entry, size, doneParts, null);
+                return;
+            }
+
+            // The first part doubles as the size probe, so small outputs take a single round trip
+            Files.deleteIfExists(entry.parts); // Stale without its .partial file
+            byte[] first = withRetries(() -> Services.blobs().getRange(entry.key, 0, partSize));
+            if (first.length < partSize) {
+                Files.write(entry.partial, first);
+                Files.move(entry.partial, entry.file, StandardCopyOption.REPLACE_EXISTING);
+                bytesFetched.addAndGet(first.length);
+                entry.finish("OK", first.length);
+                return;
+            }
+            long size = withRetries(() -> Services.blobs().size(entry.key));
+            startParts(entry, size, doneParts, first);
+        } catch (Exception e) {
+            entry.fail(e);
+        }
+    }
+
+    private void startParts(Entry entry, long size, Set<Integer> doneParts, byte[] first) throws IOException {
+        int parts = (int) Math.max(1, (size + partSize - 1) / partSize);
+        entry.channel = FileChannel.open(entry.partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        entry.size = size;
+
+        List<Integer> missing = new ArrayList<>();
+        for (int part = 0; part < parts; part++) {
+            if (!doneParts.contains(part) && !(part == 0 && first != null)) missing.add(part);
+        }
+        entry.pendingParts.set(missing.size() + (first != null ? 1 : 0));
+        if (entry.pendingParts.get() == 0) {
+            completeParts(entry);
+            return;
+        }
+
+        if (first != null) {
+            pool.submit(() -> writePart(entry, 0, first));
+        }
+        for (int part : missing) {
+            pool.submit(() -> {
+                long offset = (long) part * partSize;
+                int length = (int) Math.min(partSize, size - offset);
+                try {
+                    byte[] bytes = withRetries(() -> Services.blobs().getRange(entry.key, offset, length));
+                    if (bytes.length != length) {
+                        throw new IOException("Short read of part " + part + ": " + bytes.length + " of " + length + " bytes");
+                    }
+                    writePart(entry, part, bytes);
+                } catch (Exception e) {
+                    entry.failed = e;
+                    partSettled(entry);
+                }
+            });
+        }
+    }
+
+    private void writePart(Entry entry, int part, byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long offset = (long) part * partSize;
+            while (buffer.hasRemaining()) {
+                entry.channel.write(buffer, offset + buffer.position());
+            }
+            // Only a durable part may be listed as done
+            entry.channel.force(false);
+            synchronized (entry) {
+                Files.write(entry.parts, (part + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            bytesFetched.addAndGet(bytes.length);
+        } catch (Exception e) {
+            entry.failed = e;
+        }
+        partSettled(entry);
+    }
+
+    private void partSettled(Entry entry) {
+        if (entry.pendingParts.decrementAndGet() > 0) return;
+        try {
+            completeParts(entry);
+        } catch (Exception e) {
+            entry.fail(e);
+        }
+    }
+
+    private void completeParts(Entry entry) throws IOException {
+        entry.channel.close();
+        if (entry.failed != null) {
+            entry.fail(entry.failed); // Finished parts stay listed for the next run
+            return;
+        }
+        Files.move(entry.partial, entry.file, StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(entry.parts);
+        entry.finish("OK", entry.size);
+    }
+
+    private Set<Integer> readParts(Entry entry) throws IOException {
+        Set<Integer> parts = new HashSet<>();
+        if (!Files.exists(entry.parts) || !Files.exists(entry.partial)) return parts;
+        for (String line : Files.readAllLines(entry.parts, StandardCharsets.UTF_8)) {
+            if (!line.trim().isEmpty()) parts.add(Integer.parseInt(line.trim()));
+        }
+        return parts;
+    }
+
+    private static <T> T withRetries(Callable<T> request) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return request.call();
+            } catch (Exception e) {
+                if (attempt >= Utils.FETCH_MAX_ATTEMPTS) throw e;
+                Thread.sleep(500L * attempt);
+            }
+        }
+    }
+
+    private class Entry {
+        final TaskResult result;
+        final String key;
+        final Path file;
+        final Path partial;
+        final Path parts;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final AtomicInteger pendingParts = new AtomicInteger();
+        String status;
+        long bytes;
+        long size;
+        FileChannel channel;
+        volatile Exception failed;
+
+        Entry(TaskResult result) {
+            this.result = result;
+            this.key = result.failed() ? null : Services.blobs().keyOf(result.output());
+            if (key == null) {
+                file = partial = parts = null;
+                status = result.failed() ? "FAILED" : "SKIPPED";
+                done.complete(null);
+                return;
+            }
+            file = dir.resolve(key.substring(key.lastIndexOf('/') + 1));
+            partial = Paths.get(file + ".partial");
+            parts = Paths.get(file + ".parts");
+        }
+
+        void finish(String status, long bytes) {
+            this.status = status;
+            this.bytes = bytes;
+            filesDone.incrementAndGet();
+            done.complete(null);
+        }
+
+        void fail(Exception e) {
+            System.err.println("Failed to fetch " + result.output() + ": " + e.getMessage());
+            status = "ERROR";
+            done.complete(null);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.dsp.assignment1;
+
+public class QueueMessage {
+    private final String body;
+    private final String receiptHandle;
+
+    public QueueMessage(String body, String receiptHandle) {
+        this.body = body;
+        this.receiptHandle = receiptHandle;
+    }
+
+    public String body() {
+        return body;
+    }
+
+    public String receiptHandle() {
+        return receiptHandle;
+    }
+}
@@ -0,0 +1,42 @@
+package com.dsp.assignment1;
+
+import java.util.List;
+
+/**
+ * Message queue used between LocalApplication, Manager and Workers.
+ * Implemented by SQS (default) and by an in-memory queue for single-node runs.
+ */
+public interface QueueService {
+
+    /**
+     * Creates the queue if needed and returns its URL.
+     */
+    String createQueue(String queueName);
+
+    /**
+     * Returns the URL of an existing queue, or null if it does not exist.
+     */
+    String getQueueUrl(String queueName);
+
+    void sendMessage(String queueUrl, String body);
+
+    /**
+     * Long-polls for up to maxMessages messages.
+     * A visibilityTimeoutSeconds of 0 keeps the queue's default visibility timeout.
+     */
+    List<QueueMessage> receiveMessages(String queueUrl, int maxMessages, int waitTimeSeconds, int visibilityTimeoutSeconds);
+
+    void deleteMessage(String queueUrl, String receiptHandle);
+
+    void deleteQueue(String queueUrl);
+
+    /**
+     * Approximate number of messages waiting to be received (backlog).
+     */
+    int getApproximateMessageCount(String queueUrl);
+
+    /**
+     * Approximate number of messages received but not yet deleted (in flight).
+     */
+    int getApproximateInFlightCount(String queueUrl);
+}
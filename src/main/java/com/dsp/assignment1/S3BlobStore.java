@@ -0,0 +1,107 @@
+package com.dsp.assignment1;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.nio.file.Path;
+
+public class S3BlobStore implements BlobStore {
+    private final S3Client s3;
+    private final String bucketName;
+
+    public S3BlobStore(Region region, String bucketName) {
+        this.s3 = S3Client.builder().region(region).build();
+        this.bucketName = bucketName;
+    }
+
+    @Override
+    public void ensureBucketExists() {
+        try {
+            s3.headBucket(HeadBucketRequest.builder().bucket(bucketName).build());
+            System.out.println("Bucket " + bucketName + " already exists.");
+        } catch (NoSuchBucketException e) {
+            System.out.println("Bucket " + bucketName + " does not exist. Creating...");
+            s3.createBucket(CreateBucketRequest.builder().bucket(bucketName).build());
+            System.out.println("Bucket " + bucketName + " created successfully.");
+        } catch (Exception e) {
+            // If headBucket fails for any other reason, try to create the bucket
+            System.out.println("Error checking bucket existence: " + e.getMessage() + ". Attempting to create...");
+            try {
+                s3.createBucket(CreateBucketRequest.builder().bucket(bucketName).build());
+                System.out.println("Bucket " + bucketName + " created successfully.");
+            } catch (Exception createEx) {
+                // If bucket already exists, that's fine
+                if (createEx.getMessage() != null && createEx.getMessage().contains("BucketAlreadyExists")) {
+                    System.out.println("Bucket " + bucketName + " already exists (created by another process).");
+                } else {
+                    throw createEx;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void putFile(String key, Path file) {
+        s3.putObject(PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build(), file);
+    }
+
+    @Override
+    public void putBytes(String key, byte[] content) {
+        s3.putObject(PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build(), RequestBody.fromBytes(content));
+    }
+
+    @Override
+    public void getFile(String key, Path destination) {
+        s3.getObject(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build(), destination);
+    }
+
+    @Override
+    public long size(String key) {
+        return s3.headObject(HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build()).contentLength();
+    }
+
+    @Override
+    public byte[] getRange(String key, long offset, int length) {
+        try {
+            return s3.getObjectAsBytes(GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .range("bytes=" + offset + "-" + (offset + length - 1))
+                    .build()).asByteArray();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 416) return new byte[0]; // Range starts at or past the end (e.g. empty object)
+            throw e;
+        }
+    }
+
+    @Override
+    public String uri(String key) {
+        return "s3://" + bucketName + "/" + key;
+    }
+
+    @Override
+    public String keyOf(String uri) {
+        String prefix = uri("");
+        return uri.startsWith(prefix) ? uri.substring(prefix.length()) : null;
+    }
+}
@@ -0,0 +1,36 @@
+package com.dsp.assignment1;
+
+/**
+ * The queue, blob store and compute provisioner used by the current process.
+ * Each entry point installs its implementations before doing any work.
+ */
+public class Services {
+    private static volatile QueueService queues;
+    private static volatile BlobStore blobs;
+    private static volatile ComputeProvisioner compute;
+
+    /**
+     * Installs the implementations for this process. compute may be null for processes
+     * that never start or stop nodes (Workers).
+     */
+    public static void install(QueueService queueService, BlobStore blobStore, ComputeProvisioner provisioner) {
+        queues = queueService;
+        blobs = blobStore;
+        compute = provisioner;
+    }
+
+    public static QueueService queues() {
+        if (queues == null) throw new IllegalStateException("No QueueService installed");
+        return queues;
+    }
+
+    public static BlobStore blobs() {
+        if (blobs == null) throw new IllegalStateException("No BlobStore installed");
+        return blobs;
+    }
+
+    public static ComputeProvisioner compute() {
+        if (compute == null) throw new IllegalStateException("No ComputeProvisioner installed");
+        return compute;
+    }
+}
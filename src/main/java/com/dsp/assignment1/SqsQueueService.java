@@ -0,0 +1,88 @@
+package com.dsp.assignment1;
+
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class SqsQueueService implements QueueService {
+    private final SqsClient sqs;
+
+    public SqsQueueService(Region region) {
+        this.sqs = SqsClient.builder().region(region).build();
+    }
+
+    @Override
+    public String createQueue(String queueName) {
+        try {
+            return sqs.createQueue(CreateQueueRequest.builder().queueName(queueName).build()).queueUrl();
+        } catch (Exception e) {
+            // e.g. queue recently deleted or created concurrently with other attributes
+            return sqs.getQueueUrl(GetQueueUrlRequest.builder().queueName(queueName).build()).queueUrl();
+        }
+    }
+
+    @Override
+    public String getQueueUrl(String queueName) {
+        try {
+            return sqs.getQueueUrl(GetQueueUrlRequest.builder().queueName(queueName).build()).queueUrl();
+        } catch (QueueDoesNotExistException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void sendMessage(String queueUrl, String body) {
+        sqs.sendMessage(SendMessageRequest.builder()
+                .queueUrl(queueUrl)
+                .messageBody(body)
+                .build());
+    }
+
+    @Override
+    public List<QueueMessage> receiveMessages(String queueUrl, int maxMessages, int waitTimeSeconds, int visibilityTimeoutSeconds) {
+        ReceiveMessageRequest.Builder request = ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl)
+                .maxNumberOfMessages(maxMessages)
+                .waitTimeSeconds(waitTimeSeconds);
+        if (visibilityTimeoutSeconds > 0) {
+            request.visibilityTimeout(visibilityTimeoutSeconds);
+        }
+
+        return sqs.receiveMessage(request.build()).messages().stream()
+                .map(m -> new QueueMessage(m.body(), m.receiptHandle()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void deleteMessage(String queueUrl, String receiptHandle) {
+        sqs.deleteMessage(DeleteMessageRequest.builder()
+                .queueUrl(queueUrl)
+                .receiptHandle(receiptHandle)
+                .build());
+    }
+
+    @Override
+    public void deleteQueue(String queueUrl) {
+        sqs.deleteQueue(DeleteQueueRequest.builder().queueUrl(queueUrl).build());
+    }
+
+    @Override
+    public int getApproximateMessageCount(String queueUrl) {
+        return getIntAttribute(queueUrl, QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES);
+    }
+
+    @Override
+    public int getApproximateInFlightCount(String queueUrl) {
+        return getIntAttribute(queueUrl, QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE);
+    }
+
+    private int getIntAttribute(String queueUrl, QueueAttributeName attribute) {
+        return Integer.parseInt(sqs.getQueueAttributes(GetQueueAttributesRequest.builder()
+                .queueUrl(queueUrl)
+                .attributeNames(attribute)
+                .build()).attributes().get(attribute));
+    }
+}
@@ -0,0 +1,63 @@
+package com.dsp.assignment1;
+
+/**
+ * One finished task as streamed to the LocalApplication in progress messages:
+ * "ANALYSIS_TYPE \t INPUT_URL \t OUTPUT" where OUTPUT is the output file's URI or "Exception: ...".
+ * The task index is not part of the line; progress messages list it in their header.
+ */
+public class TaskResult {
+    private final String analysisType;
+    private final String inputUrl;
+    private final String output;
+    private final int taskIndex;
+
+    public TaskResult(String analysisType, String inputUrl, String output) {
+        this(analysisType, inputUrl, output, -1);
+    }
+
+    public TaskResult(String analysisType, String inputUrl, String output, int taskIndex) {
+        this.analysisType = analysisType;
+        this.inputUrl = inputUrl;
+        this.output = output;
+        this.taskIndex = taskIndex;
+    }
+
+    public static TaskResult parse(String line) {
+        return parse(line, -1);
+    }
+
+    public static TaskResult parse(String line, int taskIndex) {
+        String[] parts = line.split("\t", 3);
+        return new TaskResult(parts[0], parts[1], parts.length > 2 ? parts[2] : "", taskIndex);
+    }
+
+    public String encode() {
+        return String.join("\t", analysisType, inputUrl, output);
+    }
+
+    public String analysisType() {
+        return analysisType;
+    }
+
+    public String inputUrl() {
+        return inputUrl;
+    }
+
+    /**
+     * URI of the output file (see BlobStore.keyOf), or the error text if the task failed.
+     */
+    public String output() {
+        return output;
+    }
+
+    /**
+     * The task's position in the input file, or -1 if unknown (a Worker that does not report it).
+     */
+    public int taskIndex() {
+        return taskIndex;
+    }
+
+    public boolean failed() {
+        return output.startsWith("Exception:");
+    }
+}
@@ -0,0 +1,95 @@
+package com.dsp.assignment1;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Trace context carried as the last field of the tab-separated message bodies.
+ * Each component marks the wall-clock time (epoch millis) at which a stage ended.
+ * Encoded as "ID;stage@millis;stage@millis..." so it contains neither tabs nor newlines.
+ */
+public class Trace {
+    // LocalApplication
+    public static final String SUBMITTED = "submitted";
+    // Manager, per job
+    public static final String JOB_RECEIVED = "job_received";
+    public static final String INPUT_DOWNLOADED = "input_downloaded";
+    public static final String SUMMARY_STARTED = "summary_started";
+    public static final String SUMMARY_DONE = "summary_done";
+    // Manager and Worker, per task
+    public static final String DISPATCHED = "dispatched";
+    public static final String WORKER_RECEIVED = "worker_received";
+    public static final String STARTED = "started";
+    public static final String DOWNLOADED = "downloaded";
+    public static final String TOKENIZED = "tokenized";
+    public static final String PARSED = "parsed";
+    public static final String UPLOADED = "uploaded";
+    public static final String RESULT_SENT = "result_sent";
+    public static final String RESULT_RECEIVED = "result_received";
+
+    private final String id;
+    private final Map<String, Long> marks = new LinkedHashMap<>();
+
+    public Trace(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Decodes a trace field; malformed marks are skipped so a bad trace never fails a task.
+     */
+    public static Trace decode(String encoded) {
+        String[] parts = encoded.split(";");
+        Trace trace = new Trace(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            int at = parts[i].indexOf('@');
+            if (at <= 0) continue;
+            try {
+                trace.mark(parts[i].substring(0, at), Long.parseLong(parts[i].substring(at + 1)));
+            } catch (NumberFormatException e) {
+                // Ignore the mark
+            }
+        }
+        return trace;
+    }
+
+    public String encode() {
+        StringBuilder encoded = new StringBuilder(id);
+        synchronized (marks) {
+            for (Map.Entry<String, Long> mark : marks.entrySet()) {
+                encoded.append(';').append(mark.getKey()).append('@').append(mark.getValue());
+            }
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * A trace for one task of this trace's job, e.g. "jobTraceId/17".
+     */
+    public Trace child(String suffix) {
+        return new Trace(id + "/" + suffix);
+    }
+
+    public Trace mark(String stage) {
+        return mark(stage, System.currentTimeMillis());
+    }
+
+    public Trace mark(String stage, long epochMillis) {
+        synchronized (marks) {
+            marks.put(stage, epochMillis);
+        }
+        return this;
+    }
+
+    /**
+     * Time of the mark, or null if the stage was not reached (e.g. the task failed before it).
+     */
+    public Long get(String stage) {
+        synchronized (marks) {
+            return marks.get(stage);
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+}
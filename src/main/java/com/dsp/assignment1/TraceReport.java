@@ -0,0 +1,127 @@
+package com.dsp.assignment1;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates the traces of one job into a per-stage latency breakdown,
+ * rendered into the summary HTML and exported as a Chrome trace file (chrome://tracing, Perfetto).
+ *
+ * Stages that span two machines (queue waits) compare clocks of different hosts,
+ * so they are only as accurate as the hosts' clock sync; negative values are clamped to 0.
+ */
+public class TraceReport {
+    private static final String[][] JOB_STAGES = {
+            // name, from mark, to mark
+            {"Submission queue wait", Trace.SUBMITTED, Trace.JOB_RECEIVED},
+            {"Input download", Trace.JOB_RECEIVED, Trace.INPUT_DOWNLOADED},
+            {"Summary building", Trace.SUMMARY_STARTED, Trace.SUMMARY_DONE},
+    };
+    private static final String[][] TASK_STAGES = {
+            {"Dispatch", "job:" + Trace.INPUT_DOWNLOADED, Trace.DISPATCHED},
+            {"Task queue wait", Trace.DISPATCHED, Trace.WORKER_RECEIVED},
+            {"Wait for earlier bundle tasks", Trace.WORKER_RECEIVED, Trace.STARTED},
+            {"Document download", Trace.STARTED, Trace.DOWNLOADED},
+            // Tokenization overlaps with the first parses; parsing covers the remaining wait
+            {"Tokenization", Trace.DOWNLOADED, Trace.TOKENIZED},
+            {"Parsing", Trace.TOKENIZED, Trace.PARSED},
+            {"Output upload", Trace.PARSED, Trace.UPLOADED},
+            {"Wait for later bundle tasks", Trace.UPLOADED, Trace.RESULT_SENT},
+            {"Result queue wait", Trace.RESULT_SENT, Trace.RESULT_RECEIVED},
+    };
+
+    private final Trace jobTrace;
+    private final List<Trace> taskTraces;
+
+    public TraceReport(Trace jobTrace, List<Trace> taskTraces) {
+        this.jobTrace = jobTrace;
+        this.taskTraces = new ArrayList<>(taskTraces);
+    }
+
+    /**
+     * Per stage: {count, total ms, max ms}, in pipeline order.
+     */
+    public Map<String, long[]> breakdown() {
+        Map<String, long[]> stages = new LinkedHashMap<>();
+        addStage(stages, JOB_STAGES[0], jobTrace);
+        addStage(stages, JOB_STAGES[1], jobTrace);
+        for (String[] stage : TASK_STAGES) {
+            for (Trace task : taskTraces) {
+                addStage(stages, stage, task);
+            }
+        }
+        addStage(stages, JOB_STAGES[2], jobTrace);
+        return stages;
+    }
+
+    public String toHtml() {
+        StringBuilder html = new StringBuilder();
+        html.append("<h3>Latency breakdown</h3>\n");
+        html.append("<table border=\"1\"><tr><th>Stage</th><th>Count</th><th>Mean (ms)</th><th>Max (ms)</th><th>Total (ms)</th></tr>\n");
+        for (Map.Entry<String, long[]> stage : breakdown().entrySet()) {
+            long[] s = stage.getValue();
+            html.append("<tr><td>").append(stage.getKey()).append("</td><td>").append(s[0])
+                    .append("</td><td>").append(s[1] / s[0]).append("</td><td>").append(s[2])
+                    .append("</td><td>").append(s[1]).append("</td></tr>\n");
+        }
+        html.append("</table>\n");
+
+        Long end = jobTrace.get(Trace.SUMMARY_DONE) != null ? jobTrace.get(Trace.SUMMARY_DONE) : jobTrace.get(Trace.SUMMARY_STARTED);
+        Long start = jobTrace.get(Trace.SUBMITTED) != null ? jobTrace.get(Trace.SUBMITTED) : jobTrace.get(Trace.JOB_RECEIVED);
+        if (start != null && end != null) {
+            html.append("<p>End to end: ").append(Math.max(0, end - start)).append(" ms</p>\n");
+        }
+        return html.toString();
+    }
+
+    /**
+     * Chrome trace event format: job stages on thread 0, each task on its own thread.
+     */
+    public String toChromeTraceJson() {
+        StringBuilder json = new StringBuilder("{\"traceEvents\":[\n");
+        List<String> events = new ArrayList<>();
+        for (String[] stage : JOB_STAGES) {
+            addEvent(events, stage, jobTrace, 0);
+        }
+        for (int i = 0; i < taskTraces.size(); i++) {
+            for (String[] stage : TASK_STAGES) {
+                addEvent(events, stage, taskTraces.get(i), i + 1);
+            }
+        }
+        json.append(String.join(",\n", events));
+        json.append("\n],\"displayTimeUnit\":\"ms\",\"otherData\":{\"trace\":\"").append(jobTrace.getId()).append("\"}}\n");
+        return json.toString();
+    }
+
+    private void addStage(Map<String, long[]> stages, String[] stage, Trace trace) {
+        Long duration = duration(stage, trace);
+        if (duration == null) return;
+        long[] s = stages.computeIfAbsent(stage[0], k -> new long[3]);
+        s[0]++;
+        s[1] += duration;
+        s[2] = Math.max(s[2], duration);
+    }
+
+    private void addEvent(List<String> events, String[] stage, Trace trace, int tid) {
+        Long from = time(stage[1], trace);
+        Long duration = duration(stage, trace);
+        if (from == null || duration == null) return;
+        events.add("{\"name\":\"" + stage[0] + "\",\"ph\":\"X\",\"pid\":1,\"tid\":" + tid
+                + ",\"ts\":" + from * 1000 + ",\"dur\":" + duration * 1000
+                + ",\"args\":{\"trace\":\"" + trace.getId() + "\"}}");
+    }
+
+    private Long duration(String[] stage, Trace trace) {
+        Long from = time(stage[1], trace);
+        Long to = time(stage[2], trace);
+        if (from == null || to == null) return null;
+        return Math.max(0, to - from);
+    }
+
+    // "job:" marks are read from the job trace, so task stages can start at a job-level event
+    private Long time(String mark, Trace trace) {
+        return mark.startsWith("job:") ? jobTrace.get(mark.substring(4)) : trace.get(mark);
+    }
+}
@@ -2,6 +2,8 @@ package com.dsp.assignment1;
 
 import software.amazon.awssdk.regions.Region;
 
+import java.util.List;
+
 public class Utils {
     public static final Region REGION = Region.US_EAST_1;
     
@@ -19,4 +21,48 @@ public class Utils {
     public static final String TAG_VALUE_WORKER = "Worker";
 
     public static final int MAX_WORKERS = 18; // 19 instances limit - 1 manager = 18 workers
+
+    // Task bundling: small documents are packed into one WorkerTaskQueue message (one task per line)
+    public static final long BUNDLE_SMALL_DOCUMENT_BYTES = 64 * 1024; // Larger (or unknown size) documents are sent alone
+    public static final long BUNDLE_MAX_BYTES = 512 * 1024; // Estimated document bytes per bundle
+    public static final int BUNDLE_MAX_TASKS = 10;
+    public static final int BUNDLE_PROBE_SECONDS = 10; // Total time for a job's document size probes
+
+    // Progress messages to the LocalApplication
+    public static final int PROGRESS_INTERVAL_SECONDS = 5; // At most one progress message per job per interval
+    public static final int PROGRESS_MAX_RESULTS = 200; // Results per message
+    public static final int PROGRESS_MAX_BYTES = 200 * 1024; // Encoded bytes per message, below the 256 KB SQS limit
+    public static final int PROGRESS_DRAIN_SECONDS = 30; // How long results that arrive after the summary are waited for
+    public static final int MANAGER_CHECK_SECONDS = 120; // Reply queue silence after which the Manager is checked (and restarted if gone)
+    public static final int BATCH_IDLE_MINUTES = 60; // A batch stops waiting for its unfinished inputs after this long without a reply
+
+    // Bulk download of job outputs (OutputFetcher)
+    public static final int FETCH_PARALLELISM = 16; // Concurrent GETs
+    public static final int FETCH_PART_SIZE = 8 * 1024 * 1024; // Larger objects are fetched as parallel ranged GETs
+    public static final int FETCH_MAX_ATTEMPTS = 3;
+
+    // Batch submission (LocalApplication --batch)
+    public static final int BATCH_UPLOAD_PARALLELISM = 8;
+
+    // Manager job journal (JobJournal)
+    public static final String JOURNAL_SNAPSHOT_KEY = "manager/journal.log";
+    public static final int JOURNAL_SNAPSHOT_SECONDS = 30;
+    public static final int MANAGER_TASK_VISIBILITY_SECONDS = 300; // A job request is deleted only once it is journaled
+    public static final int FINISH_MAX_ATTEMPTS = 3; // Summary upload and DONE attempts before the job is answered with an error
+
+    // Worker sizing (CapacityPlanner)
+    public static final double CAPACITY_TARGET_MINUTES = 30; // Backlog finish time the planner aims for
+    public static final int WORKER_STARTUP_SECONDS = 180; // Boot, model download and load
+    public static final String WORKER_STATS_KEY = "manager/worker-stats.tsv";
+    public static final int WORKER_STATS_HISTORY = 100; // Most recently reported Workers whose stats are kept and saved
+    public static final int WORKER_STATS_SAVE_SECONDS = 60;
+
+    /**
+     * Nearest-rank percentile of an ascending list; null when empty.
+     */
+    public static Long percentile(List<Long> sorted, int p) {
+        if (sorted.isEmpty()) return null;
+        int rank = (int) Math.ceil(p / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
 }
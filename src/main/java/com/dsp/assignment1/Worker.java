@@ -10,11 +10,6 @@ import edu.stanford.nlp.trees.PennTreebankLanguagePack;
 import edu.stanford.nlp.trees.Tree;
 import edu.stanford.nlp.trees.TreebankLanguagePack;
 import edu.stanford.nlp.trees.TypedDependency;
-import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
-import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.*;
 
 import java.io.*;
 import java.net.URL;
@@ -27,21 +22,76 @@ import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
 public class Worker {
-    private static final Region REGION = Utils.REGION;
-    private static final S3Client s3 = S3Client.builder().region(REGION).build();
-    private static final SqsClient sqs = SqsClient.builder().region(REGION).build();
+    public static final String DEFAULT_MODEL_PATH = "/home/ec2-user/stanford/englishPCFG.ser.gz";
 
     private static LexicalizedParser parser;
 
+    // Sentence parsing pool (all available CPUs unless the Manager sized it with -Dworker.threads), shared across tasks
+    private static final int parseThreads = Integer.getInteger("worker.threads", Runtime.getRuntime().availableProcessors());
+    private static final ExecutorService parsePool = Executors.newFixedThreadPool(parseThreads);
+
+    // Measured costs, reported to the Manager with every result message (see CapacityPlanner)
+    private static final WorkerStats.Recorder stats =
+            new WorkerStats.Recorder(System.getProperty("worker.instanceType", "unknown"), parseThreads);
+
+    // Metrics (served by MetricsServer when -Dmetrics.port is set)
+    private static final Metrics.Counter sentencesParsed =
+            Metrics.counter("worker_sentences_parsed_total", "Sentences parsed");
+    private static final Metrics.Counter sentencesSkipped =
+            Metrics.counter("worker_sentences_skipped_total", "Sentences skipped for being longer than 80 words");
+    private static final Metrics.Histogram parseLatency = Metrics.histogram("worker_parse_latency_seconds",
+            "Time to parse and format one sentence", 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30);
+    // Package-private for LoadBenchmark, which runs the Workers in its own JVM
+    static long sentencesParsed() {
+        return sentencesParsed.get();
+    }
+
+    static long sentencesSkipped() {
+        return sentencesSkipped.get();
+    }
+
+    private static final Metrics.Counter tasksCompleted = Metrics.counter("worker_tasks_completed_total", "Tasks completed");
+    private static final Metrics.Counter tasksFailed = Metrics.counter("worker_tasks_failed_total", "Tasks that ended in an exception");
+    private static final AtomicInteger tasksInFlight = new AtomicInteger();
+
+    static {
+        Metrics.rate("worker_sentences_per_second", "Sentences parsed per second over the last minute", sentencesParsed);
+        Metrics.gauge("worker_tasks_in_flight", "Tasks being processed", tasksInFlight::get);
+        Metrics.gauge("worker_parse_threads_active", "Parse pool threads currently parsing",
+                () -> ((ThreadPoolExecutor) parsePool).getActiveCount());
+        Metrics.gauge("worker_parse_threads", "Parse pool size", () -> ((ThreadPoolExecutor) parsePool).getMaximumPoolSize());
+        Metrics.gauge("worker_parse_queue_size", "Sentences waiting for a parse thread",
+                () -> ((ThreadPoolExecutor) parsePool).getQueue().size());
+        Metrics.gauge("worker_heap_peak_bytes", "Most heap in use after a GC", stats::heapPeak);
+    }
+
     public static void main(String[] args) {
         System.out.println("Worker started.");
 
+        Services.install(new SqsQueueService(Utils.REGION), new S3BlobStore(Utils.REGION, Utils.S3_BUCKET_NAME), null);
+
         // Initialize Stanford Parser (Legacy 3.6.0)
         // Load default english model
+        loadParser(System.getProperty("worker.model", DEFAULT_MODEL_PATH));
+        stats.markBaseline();
+
+        MetricsServer.startFromProperties();
+        FlightRecording.startFromProperties("worker");
+        run(() -> true);
+    }
+
+    /**
+     * Loads the parser model once per JVM; Workers running as threads of one process share it.
+     */
+    public static synchronized void loadParser(String modelPath) {
+        if (parser != null) return;
         try {
-            parser = LexicalizedParser.loadModel("/home/ec2-user/stanford/englishPCFG.ser.gz");
+            parser = LexicalizedParser.loadModel(modelPath);
         } catch (Exception e) {
             System.err.println("Failed to load parser model: " + e.getMessage());
             // e.printStackTrace();
@@ -49,71 +99,195 @@ public class Worker {
             // Maybe try to load from file system if it was downloaded?
             // For now assume it's in the classpath (in the shaded jar models).
         }
+    }
 
-        String taskQueueUrl = getQueueUrl(Utils.WORKER_TASK_QUEUE_NAME);
-        String resultQueueUrl = getQueueUrl(Utils.WORKER_RESULT_QUEUE_NAME);
+    /**
+     * Processes tasks until running returns false.
+     */
+    public static void run(BooleanSupplier running) {
+        QueueService sqs = Services.queues();
+        String taskQueueUrl = sqs.getQueueUrl(Utils.WORKER_TASK_QUEUE_NAME);
+        String resultQueueUrl = sqs.getQueueUrl(Utils.WORKER_RESULT_QUEUE_NAME);
 
         System.out.println("Listening for tasks on " + taskQueueUrl);
 
-        while (true) {
-            ReceiveMessageResponse response = sqs.receiveMessage(ReceiveMessageRequest.builder()
-                    .queueUrl(taskQueueUrl)
-                    .maxNumberOfMessages(1)
-                    .waitTimeSeconds(20)
-                    .visibilityTimeout(1800)
-                    .build());
+        while (running.getAsBoolean()) {
+            List<QueueMessage> messages;
+            FlightEvents.QueueOperation receive = FlightEvents.beginQueueOperation("receive", taskQueueUrl);
+            try {
+                messages = sqs.receiveMessages(taskQueueUrl, 1, 20, 1800);
+                receive.messages = messages.size();
+                receive.commit();
+            } catch (Exception e) {
+                if (!running.getAsBoolean()) break; // Queues are deleted on shutdown
+                System.err.println("Failed to receive tasks: " + e.getMessage());
+                sleepQuietly(1000);
+                continue;
+            }
 
-            if (!response.messages().isEmpty()) {
-                Message message = response.messages().get(0);
+            if (!messages.isEmpty()) {
+                QueueMessage message = messages.get(0);
                 try {
                     processMessage(message, resultQueueUrl);
                     
-                    sqs.deleteMessage(DeleteMessageRequest.builder()
-                            .queueUrl(taskQueueUrl)
-                            .receiptHandle(message.receiptHandle())
-                            .build());
+                    FlightEvents.QueueOperation delete = FlightEvents.beginQueueOperation("delete", taskQueueUrl);
+                    sqs.deleteMessage(taskQueueUrl, message.receiptHandle());
+                    delete.messages = 1;
+                    delete.commit();
                             
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
             }
         }
+        System.out.println("Worker stopped.");
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    private static String getQueueUrl(String queueName) {
-        return sqs.getQueueUrl(GetQueueUrlRequest.builder().queueName(queueName).build()).queueUrl();
+    // Package-private for WorkerTest
+    static void processMessage(QueueMessage message, String resultQueueUrl) {
+        // Body: one task per line (small documents arrive bundled)
+        // Line: "ANALYSIS_TYPE \t URL \t JOB_ID \t TRACE \t TASK_INDEX" (TRACE and TASK_INDEX are optional)
+        String[] tasks = message.body().split("\n");
+        System.out.println("Processing message with " + tasks.length + " task(s)");
+        long start = System.nanoTime();
+
+        // Every task of a bundle left the queue now, even if it is processed later
+        long receivedAt = System.currentTimeMillis();
+        List<Trace> traces = new ArrayList<>();
+        List<String> taskIndexes = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (String task : tasks) {
+            String[] parts = task.split("\t");
+            String error = validateTask(parts);
+            String jobId = parts.length > 2 ? parts[2] : "";
+            Trace trace;
+            try {
+                trace = parts.length > 3 ? Trace.decode(parts[3]) : new Trace(jobId);
+            } catch (RuntimeException e) {
+                trace = new Trace(jobId); // Only the trace is lost
+            }
+            traces.add(trace.mark(Trace.WORKER_RECEIVED, receivedAt));
+            taskIndexes.add(parts.length > 4 && error == null ? parts[4] : null);
+            errors.add(error);
+        }
+
+        // A malformed line gets an error result of its own; the rest of the bundle is processed as usual
+        List<String> results = new ArrayList<>();
+        for (int i = 0; i < tasks.length; i++) {
+            if (errors.get(i) != null) {
+                System.err.println(errors.get(i) + ": " + tasks[i]);
+                tasksFailed.increment();
+                results.add(errorResult(tasks[i].split("\t"), errors.get(i)));
+            } else {
+                results.add(processTask(tasks[i], traces.get(i)));
+            }
+        }
+
+        // One batched reply for the whole bundle, one result per line and this Worker's stats last
+        // The task index lets the Manager ignore a result it already has (tasks sent again after a Manager restart)
+        long sentAt = System.currentTimeMillis();
+        for (int i = 0; i < results.size(); i++) {
+            String result = results.get(i) + "\t" + traces.get(i).mark(Trace.RESULT_SENT, sentAt).encode();
+            results.set(i, taskIndexes.get(i) != null ? result + "\t" + taskIndexes.get(i) : result);
+        }
+        stats.busy(System.nanoTime() - start);
+        results.add(stats.snapshot().encode());
+        String reply = String.join("\n", results);
+        FlightEvents.QueueOperation send = FlightEvents.beginQueueOperation("send", resultQueueUrl);
+        Services.queues().sendMessage(resultQueueUrl, reply);
+        send.messages = 1;
+        send.bytes = reply.length();
+        send.commit();
     }
 
-    private static void processMessage(Message message, String resultQueueUrl) {
-        String body = message.body();
-        System.out.println("Processing: " + body);
-        String[] parts = body.split("\t");
+    /**
+     * Why a task line cannot be processed, or null if it can. Package-private for WorkerTest.
+     */
+    static String validateTask(String[] parts) {
+        if (parts.length < 3 || parts[0].isEmpty() || parts[1].isEmpty() || parts[2].isEmpty()) {
+            return "Malformed task: expected ANALYSIS_TYPE, URL and JOB_ID";
+        }
+        if (parts.length > 4 && !parts[4].matches("\\d+")) {
+            return "Malformed task index: " + parts[4];
+        }
+        return null;
+    }
+
+    /**
+     * The result line for a task that was not processed, in the format of processTask. Package-private for WorkerTest.
+     */
+    static String errorResult(String[] parts, String error) {
+        String jobId = parts.length > 2 ? parts[2] : "";
+        String url = parts.length > 1 ? parts[1] : "";
+        return String.join("\t", jobId, url, "Exception: " + error.replace('\t', ' '), parts[0]);
+    }
+
+    /**
+     * Returns "JOB_ID \t INPUT_URL \t OUTPUT_S3_URL \t ANALYSIS_TYPE"; the caller appends the trace and task index.
+     */
+    private static String processTask(String task, Trace trace) {
+        System.out.println("Processing: " + task);
+        String[] parts = task.split("\t");
         String analysisType = parts[0];
         String url = parts[1];
         String jobId = parts[2];
         
         String resultUrlOrError;
+        tasksInFlight.incrementAndGet();
         
         try {
-            File inputFile = downloadFile(url);
-            String outputContent = analyze(inputFile, analysisType);
+            trace.mark(Trace.STARTED);
+            FlightEvents.DocumentDownload download = new FlightEvents.DocumentDownload();
+            download.task = trace.getId();
+            download.url = url;
+            download.begin();
+            File inputFile;
+            try {
+                inputFile = downloadFile(url);
+                download.bytes = inputFile.length();
+                download.success = true;
+            } finally {
+                download.commit();
+            }
+            trace.mark(Trace.DOWNLOADED);
+            String outputContent = analyze(inputFile, analysisType, parsePool, trace);
+            inputFile.delete();
+            stats.documentDone(analysisType);
             
             String outputKey = "output/" + jobId + "/" + UUID.randomUUID() + ".txt";
-            uploadToS3(outputKey, outputContent);
+            byte[] output = outputContent.getBytes();
+            FlightEvents.OutputUpload upload = new FlightEvents.OutputUpload();
+            upload.task = trace.getId();
+            upload.key = outputKey;
+            upload.bytes = output.length;
+            upload.begin();
+            Services.blobs().putBytes(outputKey, output);
+            upload.commit();
+            trace.mark(Trace.UPLOADED);
             
-            resultUrlOrError = "s3://" + Utils.S3_BUCKET_NAME + "/" + outputKey;
+            resultUrlOrError = Services.blobs().uri(outputKey);
+            tasksCompleted.increment();
             
         } catch (Exception e) {
             e.printStackTrace();
             resultUrlOrError = "Exception: " + e.getMessage();
+            tasksFailed.increment();
+        } finally {
+            tasksInFlight.decrementAndGet();
         }
+
+        // Keep the result on one line so it can share a batched reply
+        resultUrlOrError = resultUrlOrError.replace('\n', ' ').replace('\t', ' ');
         
-        String resultBody = String.join("\t", jobId, url, resultUrlOrError, analysisType);
-        
-        sqs.sendMessage(SendMessageRequest.builder()
-                .queueUrl(resultQueueUrl)
-                .messageBody(resultBody)
-                .build());
+        return String.join("\t", jobId, url, resultUrlOrError, analysisType);
     }
 
     private static File downloadFile(String urlStr) throws IOException {
@@ -125,7 +299,15 @@ public class Worker {
         return temp;
     }
 
-    private static String analyze(File file, String type) throws IOException {
+    // Package-private for the JMH benchmarks (pom-bench.xml)
+    static String analyze(File file, String type, ExecutorService parsePool) throws IOException {
+        return analyze(file, type, parsePool, null);
+    }
+
+    /**
+     * Marks TOKENIZED once every sentence is queued for parsing and PARSED once all are parsed (trace may be null).
+     */
+    private static String analyze(File file, String type, ExecutorService parsePool, Trace trace) throws IOException {
         // Create temporary file for output (streaming to disk instead of RAM)
         File outputFile = File.createTempFile("worker_analysis", ".txt");
         
@@ -135,10 +317,9 @@ public class Worker {
         TreebankLanguagePack tlp = new PennTreebankLanguagePack();
         GrammaticalStructureFactory gsf = tlp.grammaticalStructureFactory();
 
-        // 1. Define a thread pool (utilize all available CPUs)
-        int cores = Runtime.getRuntime().availableProcessors();
-        ExecutorService executor = Executors.newFixedThreadPool(cores);
+        // 1. Parse on the shared pool (created once, reused by every task of a bundle)
         List<Future<String>> futures = new ArrayList<>();
+        String task = trace != null ? trace.getId() : null;
 
         try {
             // 2. Submit parsing tasks to thread pool
@@ -147,17 +328,46 @@ public class Worker {
                 final List<HasWord> sentenceCopy = new ArrayList<>(sentence);
                 
                 // Submit the parsing task to the pool
-                futures.add(executor.submit(() -> {
+                futures.add(parsePool.submit(() -> {
+                    // No event object per sentence unless a recording is running
+                    FlightEvents.SentenceParse event = FlightEvents.isEnabled() ? new FlightEvents.SentenceParse() : null;
+                    if (event != null) {
+                        event.task = task;
+                        event.analysisType = type;
+                        event.tokens = sentenceCopy.size();
+                    }
+
                     // Validation check inside the thread
                     if (sentenceCopy.size() > 80) {
+                        sentencesSkipped.increment();
+                        if (event != null) {
+                            event.outcome = "SKIPPED";
+                            event.commit();
+                        }
                         return "";
                     }
                     
                     // The heavy lifting - parsing
-                    Tree parse = parser.apply(sentenceCopy);
-                    return processParseResult(parse, type, gsf);
+                    if (event != null) {
+                        event.outcome = "FAILED";
+                        event.begin();
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        Tree parse = parser.apply(sentenceCopy);
+                        String result = processParseResult(parse, type, gsf);
+                        long nanos = System.nanoTime() - start;
+                        parseLatency.observeNanos(nanos);
+                        stats.sentenceParsed(type, nanos);
+                        sentencesParsed.increment();
+                        if (event != null) event.outcome = "PARSED";
+                        return result;
+                    } finally {
+                        if (event != null) event.commit();
+                    }
                 }));
             }
+            if (trace != null) trace.mark(Trace.TOKENIZED);
 
             // 3. Collect results in order (preserves text order) and write to file
             try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile))) {
@@ -172,8 +382,12 @@ public class Worker {
                     }
                 }
             }
+            if (trace != null) trace.mark(Trace.PARSED);
         } finally {
-            executor.shutdown();
+            // Don't leave queued sentences of a failed task running on the shared pool
+            for (Future<String> future : futures) {
+                future.cancel(true);
+            }
         }
         
         // Read the file content and return as string
@@ -188,7 +402,7 @@ public class Worker {
     /**
      * Helper method to process parse result based on analysis type
      */
-    private static String processParseResult(Tree parse, String type, GrammaticalStructureFactory gsf) {
+    static String processParseResult(Tree parse, String type, GrammaticalStructureFactory gsf) {
         StringBuilder result = new StringBuilder();
         
         switch (type) {
@@ -213,14 +427,4 @@ public class Worker {
         
         return result.toString();
     }
-
-    private static void uploadToS3(String key, String content) throws IOException {
-        File temp = File.createTempFile("worker_output", ".txt");
-        Files.write(temp.toPath(), content.getBytes());
-        
-        s3.putObject(PutObjectRequest.builder()
-                .bucket(Utils.S3_BUCKET_NAME)
-                .key(key)
-                .build(), temp.toPath());
-    }
 }
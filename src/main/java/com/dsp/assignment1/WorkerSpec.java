@@ -0,0 +1,39 @@
+package com.dsp.assignment1;
+
+/**
+ * How Worker nodes are launched: EC2 instance type, JVM heap and sentence parse threads.
+ */
+public class WorkerSpec {
+    // The fixed shape every Worker had before capacity planning (-Dmanager.workerSizing=fixed)
+    public static final WorkerSpec DEFAULT = new WorkerSpec("t3.large", 6000, 0);
+
+    private final String instanceType;
+    private final int heapMb;
+    private final int threads;
+
+    /**
+     * @param threads parse threads, or 0 for one per available processor
+     */
+    public WorkerSpec(String instanceType, int heapMb, int threads) {
+        this.instanceType = instanceType;
+        this.heapMb = heapMb;
+        this.threads = threads;
+    }
+
+    public String instanceType() {
+        return instanceType;
+    }
+
+    public int heapMb() {
+        return heapMb;
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    @Override
+    public String toString() {
+        return instanceType + ", " + heapMb + " MB heap, " + (threads > 0 ? threads : "all") + " parse threads";
+    }
+}
@@ -0,0 +1,232 @@
+package com.dsp.assignment1;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The measured cost of everything a Worker processed since it started, for CapacityPlanner.
+ * Workers append it to each result message as one extra line:
+ *   "STATS \t WORKER_ID \t INSTANCE_TYPE \t VCPUS \t THREADS \t HEAP_MAX \t HEAP_BASE \t HEAP_PEAK \t BUSY_NANOS \t TYPES"
+ * where TYPES is "ANALYSIS_TYPE:DOCUMENTS:SENTENCES:PARSE_NANOS,..." (parsed sentences only).
+ * Heap sizes are in bytes: HEAP_BASE is the live heap with the parser model loaded, HEAP_PEAK the most heap
+ * in use after any GC (0 before the first one). BUSY_NANOS is the wall time spent on task messages.
+ */
+public class WorkerStats {
+    static final String PREFIX = "STATS";
+
+    private final String workerId;
+    private final String instanceType;
+    private final int vcpus;
+    private final int threads;
+    private final long heapMax;
+    private final long heapBase;
+    private final long heapPeak;
+    private final long busyNanos;
+    private final Map<String, TypeCost> types;
+
+    public WorkerStats(String workerId, String instanceType, int vcpus, int threads,
+                       long heapMax, long heapBase, long heapPeak, long busyNanos, Map<String, TypeCost> types) {
+        this.workerId = workerId;
+        this.instanceType = instanceType;
+        this.vcpus = vcpus;
+        this.threads = threads;
+        this.heapMax = heapMax;
+        this.heapBase = heapBase;
+        this.heapPeak = heapPeak;
+        this.busyNanos = busyNanos;
+        this.types = types;
+    }
+
+    public static WorkerStats parse(String line) {
+        String[] parts = line.split("\t", -1);
+        if (!parts[0].equals(PREFIX)) throw new IllegalArgumentException("Not a stats line: " + line);
+        Map<String, TypeCost> types = new TreeMap<>();
+        for (String type : parts[9].split(",")) {
+            if (type.isEmpty()) continue;
+            String[] fields = type.split(":");
+            types.put(fields[0], new TypeCost(Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3])));
+        }
+        return new WorkerStats(parts[1], parts[2], Integer.parseInt(parts[3]), Integer.parseInt(parts[4]),
+                Long.parseLong(parts[5]), Long.parseLong(parts[6]), Long.parseLong(parts[7]), Long.parseLong(parts[8]), types);
+    }
+
+    public String encode() {
+        List<String> encodedTypes = new ArrayList<>();
+        types.forEach((type, cost) -> encodedTypes.add(type + ":" + cost.documents + ":" + cost.sentences + ":" + cost.parseNanos));
+        return String.join("\t", PREFIX, workerId, instanceType, String.valueOf(vcpus), String.valueOf(threads),
+                String.valueOf(heapMax), String.valueOf(heapBase), String.valueOf(heapPeak), String.valueOf(busyNanos),
+                String.join(",", encodedTypes));
+    }
+
+    public String workerId() {
+        return workerId;
+    }
+
+    public String instanceType() {
+        return instanceType;
+    }
+
+    public int vcpus() {
+        return vcpus;
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    public long heapMax() {
+        return heapMax;
+    }
+
+    public long heapBase() {
+        return heapBase;
+    }
+
+    public long heapPeak() {
+        return heapPeak;
+    }
+
+    public long busyNanos() {
+        return busyNanos;
+    }
+
+    public Map<String, TypeCost> types() {
+        return types;
+    }
+
+    public long sentences() {
+        return types.values().stream().mapToLong(cost -> cost.sentences).sum();
+    }
+
+    /**
+     * Sentences parsed per second of busy time, download and upload included.
+     */
+    public double sentencesPerSecond() {
+        return busyNanos > 0 ? sentences() / (busyNanos / 1e9) : 0;
+    }
+
+    /**
+     * Parse time per sentence as if each thread had a CPU of its own: with more threads than
+     * vCPUs the measured time includes waiting for a CPU.
+     */
+    public double cpuSecondsPerSentence(TypeCost cost) {
+        double oversubscription = Math.max(1.0, (double) threads / vcpus);
+        return cost.parseNanos / 1e9 / oversubscription / cost.sentences;
+    }
+
+    public static class TypeCost {
+        final long documents;
+        final long sentences;
+        final long parseNanos;
+
+        public TypeCost(long documents, long sentences, long parseNanos) {
+            this.documents = documents;
+            this.sentences = sentences;
+            this.parseNanos = parseNanos;
+        }
+    }
+
+    /**
+     * Collects the stats on the Worker. Thread-safe; Worker threads of one JVM share a recorder.
+     */
+    public static class Recorder {
+        // Host names repeat (LocalCluster, a Worker restarted on its instance), so the process gets its own suffix
+        private static final String WORKER_ID = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+        private final String workerId = WORKER_ID;
+        private final String instanceType;
+        private final int threads;
+        private final ConcurrentHashMap<String, LongAdder[]> types = new ConcurrentHashMap<>(); // documents, sentences, parse nanos
+        private final LongAdder busyNanos = new LongAdder();
+        private final AtomicLong heapPeak = new AtomicLong();
+        private final Set<String> heapPools = new HashSet<>();
+        private volatile long heapBase;
+
+        public Recorder(String instanceType, int threads) {
+            this.instanceType = instanceType;
+            this.threads = threads;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) heapPools.add(pool.getName());
+            }
+            // The heap left after each GC; its maximum is the high-water mark of live data
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (!(collector instanceof NotificationEmitter)) continue;
+                ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                    if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) return;
+                    GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    long used = 0;
+                    for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+                        if (heapPools.contains(pool.getKey())) used += pool.getValue().getUsed();
+                    }
+                    heapPeak.accumulateAndGet(used, Math::max);
+                }, null, null);
+            }
+        }
+
+        /**
+         * Records the live heap once the parser model is loaded. Calls System.gc() first, once at startup
+         * before any task, so the garbage left by loading the model is not counted. That costs one full GC pause.
+         * Where explicit GC is disabled (-XX:+DisableExplicitGC) the garbage is counted, and the baseline is too
+         * high, which only gives the Workers sized from it a larger heap.
+         */
+        public void markBaseline() {
+            System.gc();
+            heapBase = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+
+        public void sentenceParsed(String analysisType, long nanos) {
+            LongAdder[] cost = costOf(analysisType);
+            cost[1].increment();
+            cost[2].add(nanos);
+        }
+
+        public void documentDone(String analysisType) {
+            costOf(analysisType)[0].increment();
+        }
+
+        public void busy(long nanos) {
+            busyNanos.add(nanos);
+        }
+
+        public long heapPeak() {
+            return heapPeak.get();
+        }
+
+        public WorkerStats snapshot() {
+            Map<String, TypeCost> snapshot = new TreeMap<>();
+            types.forEach((type, cost) -> snapshot.put(type, new TypeCost(cost[0].sum(), cost[1].sum(), cost[2].sum())));
+            return new WorkerStats(workerId, instanceType, Runtime.getRuntime().availableProcessors(), threads,
+                    Runtime.getRuntime().maxMemory(), heapBase, heapPeak.get(), busyNanos.sum(), snapshot);
+        }
+
+        private LongAdder[] costOf(String analysisType) {
+            return types.computeIfAbsent(analysisType, k -> new LongAdder[] {new LongAdder(), new LongAdder(), new LongAdder()});
+        }
+
+        private static String hostName() {
+            try {
+                return InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                return "unknown";
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.dsp.assignment1;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class CapacityPlannerTest {
+    // With the default model a POS document is 500 sentences at 0.25 CPU s each
+    private static final Map<String, Double> BACKLOG = Collections.singletonMap("POS", 100.0); // 12500 CPU s
+    private static final double ONE_HOUR = 3600 + Utils.WORKER_STARTUP_SECONDS;
+
+    // big costs twice as much per vCPU as small; tiny is cheapest but cannot fit a parse thread
+    private static final CapacityPlanner.InstanceOption TINY = new CapacityPlanner.InstanceOption("tiny", 2, 1024, 0.01, 1.0);
+    private static final CapacityPlanner.InstanceOption SMALL = new CapacityPlanner.InstanceOption("small", 4, 8192, 0.10, 1.0);
+    private static final CapacityPlanner.InstanceOption BIG = new CapacityPlanner.InstanceOption("big", 8, 16384, 0.40, 1.0);
+
+    private final CapacityPlanner planner = new CapacityPlanner(Arrays.asList(TINY, SMALL, BIG));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void choosesCheapestOptionThatMeetsTarget() {
+        CapacityPlanner.Plan plan = planner.plan(BACKLOG, 0, 10, ONE_HOUR);
+
+        assertEquals("small", plan.spec().instanceType());
+        assertEquals(2, plan.count()); // 3.2 CPU s/s each, 3.5 needed
+        assertEquals(4, plan.spec().threads());
+        assertEquals(6656, plan.spec().heapMb()); // 512 MB + 4 x 1024 MB x 1.5, rounded up to 256 MB
+    }
+
+    @Test
+    public void choosesPricierOptionWhenCheapestCannotMeetTarget() {
+        CapacityPlanner.Plan plan = planner.plan(BACKLOG, 0, 1, ONE_HOUR);
+
+        assertEquals("big", plan.spec().instanceType());
+        assertEquals(1, plan.count());
+    }
+
+    @Test
+    public void choosesFastestOptionWhenNoneMeetsTarget() {
+        CapacityPlanner.Plan plan = planner.plan(BACKLOG, 0, 1, 60 + Utils.WORKER_STARTUP_SECONDS);
+
+        assertEquals("big", plan.spec().instanceType());
+        assertEquals(1, plan.count());
+    }
+
+    @Test
+    public void startsNothingWhenActiveWorkersSuffice() {
+        CapacityPlanner.Plan plan = planner.plan(BACKLOG, 5, 10, ONE_HOUR);
+
+        assertEquals(0, plan.count());
+    }
+
+    @Test
+    public void measuredCostsReplaceDefaults() {
+        Map<String, WorkerStats.TypeCost> types = new HashMap<>();
+        types.put("POS", new WorkerStats.TypeCost(10, 100, 50_000_000_000L)); // 10 sentences/document, 0.5 CPU s each
+        planner.update(new WorkerStats("worker-1", "small", 2, 2, 0, 0, 0, 60_000_000_000L, types));
+
+        Map<String, Double> backlog = new HashMap<>();
+        backlog.put("POS", 4.0);
+        backlog.put("NER", 2.0); // Not measured, so costs the average of the measured types
+
+        assertEquals(30.0, planner.model().cpuSeconds(backlog), 1e-9);
+    }
+
+    @Test
+    public void keepsStatsOfMostRecentlyReportedWorkers() {
+        for (int i = 0; i < Utils.WORKER_STATS_HISTORY + 5; i++) {
+            planner.update(stats("worker-" + i));
+        }
+        planner.update(stats("worker-0")); // Dropped already, reported again
+
+        List<String> ids = workerIds(planner);
+        assertEquals(Utils.WORKER_STATS_HISTORY, ids.size());
+        assertEquals("worker-6", ids.get(0));
+        assertEquals("worker-0", ids.get(ids.size() - 1));
+    }
+
+    @Test
+    public void loadsSavedStatsAsOlderThanReportedOnes() throws Exception {
+        Services.install(null, new LocalBlobStore(folder.getRoot().toPath()), null);
+        for (int i = 0; i < Utils.WORKER_STATS_HISTORY; i++) {
+            planner.update(stats("saved-" + i));
+        }
+        planner.saveStats();
+
+        CapacityPlanner next = new CapacityPlanner(Arrays.asList(TINY, SMALL, BIG));
+        next.update(stats("new-0"));
+        next.update(stats("saved-5")); // Reported again, so no longer among the oldest
+        next.loadStats();
+
+        List<String> ids = workerIds(next);
+        assertEquals(Utils.WORKER_STATS_HISTORY, ids.size());
+        assertEquals("saved-1", ids.get(0));
+        assertEquals(Arrays.asList("new-0", "saved-5"), ids.subList(ids.size() - 2, ids.size()));
+    }
+
+    private static WorkerStats stats(String workerId) {
+        Map<String, WorkerStats.TypeCost> types = new HashMap<>();
+        types.put("POS", new WorkerStats.TypeCost(10, 100, 50_000_000_000L));
+        return new WorkerStats(workerId, "small", 2, 2, 0, 0, 0, 60_000_000_000L, types);
+    }
+
+    private static List<String> workerIds(CapacityPlanner planner) {
+        List<String> ids = new ArrayList<>();
+        for (WorkerStats workerStats : planner.model().stats) {
+            ids.add(workerStats.workerId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,132 @@
+package com.dsp.assignment1;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class InMemoryQueueServiceTest {
+    private final InMemoryQueueService queues = new InMemoryQueueService();
+    private String queueUrl;
+
+    @Before
+    public void setUp() {
+        queueUrl = queues.createQueue("test-queue");
+    }
+
+    @Test
+    public void createsQueuesOnce() {
+        queues.sendMessage(queueUrl, "kept");
+
+        assertEquals(queueUrl, queues.createQueue("test-queue"));
+        assertEquals(queueUrl, queues.getQueueUrl("test-queue"));
+        assertNull(queues.getQueueUrl("missing-queue"));
+        assertEquals(Collections.singletonList("kept"), bodies(queues.receiveMessages(queueUrl, 10, 0, 30)));
+    }
+
+    @Test
+    public void receivesUpToMaxMessagesInOrder() {
+        for (String body : Arrays.asList("a", "b", "c")) {
+            queues.sendMessage(queueUrl, body);
+        }
+
+        assertEquals(Arrays.asList("a", "b"), bodies(queues.receiveMessages(queueUrl, 2, 0, 30)));
+        assertEquals(Collections.singletonList("c"), bodies(queues.receiveMessages(queueUrl, 2, 0, 30)));
+    }
+
+    @Test
+    public void hidesReceivedMessagesUntilVisibilityTimeout() {
+        queues.sendMessage(queueUrl, "task");
+        QueueMessage first = queues.receiveMessages(queueUrl, 10, 0, 1).get(0);
+
+        assertEquals(Collections.emptyList(), queues.receiveMessages(queueUrl, 10, 0, 1));
+
+        // Not deleted in time, so it is delivered again with a new receipt handle
+        List<QueueMessage> redelivered = queues.receiveMessages(queueUrl, 10, 3, 30);
+        assertEquals(Collections.singletonList("task"), bodies(redelivered));
+        assertNotEquals(first.receiptHandle(), redelivered.get(0).receiptHandle());
+    }
+
+    @Test
+    public void deletedMessagesAreNotRedelivered() throws Exception {
+        queues.sendMessage(queueUrl, "task");
+        QueueMessage message = queues.receiveMessages(queueUrl, 10, 0, 1).get(0);
+
+        queues.deleteMessage(queueUrl, message.receiptHandle());
+        Thread.sleep(1100);
+
+        assertEquals(Collections.emptyList(), queues.receiveMessages(queueUrl, 10, 0, 1));
+    }
+
+    @Test
+    public void ignoresUnknownReceiptHandles() {
+        queues.sendMessage(queueUrl, "task");
+        queues.receiveMessages(queueUrl, 10, 0, 1);
+
+        queues.deleteMessage(queueUrl, "no-such-receipt");
+
+        // The received message is still in flight and comes back
+        assertEquals(Collections.singletonList("task"), bodies(queues.receiveMessages(queueUrl, 10, 3, 30)));
+    }
+
+    @Test
+    public void countsReadyAndInFlightMessages() {
+        for (String body : Arrays.asList("a", "b", "c")) {
+            queues.sendMessage(queueUrl, body);
+        }
+        QueueMessage first = queues.receiveMessages(queueUrl, 2, 0, 30).get(0);
+
+        assertEquals(1, queues.getApproximateMessageCount(queueUrl));
+        assertEquals(2, queues.getApproximateInFlightCount(queueUrl));
+
+        queues.deleteMessage(queueUrl, first.receiptHandle());
+
+        assertEquals(1, queues.getApproximateInFlightCount(queueUrl));
+    }
+
+    @Test
+    public void longPollWaitsForMessage() throws Exception {
+        Thread sender = new Thread(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                return;
+            }
+            queues.sendMessage(queueUrl, "late");
+        });
+        sender.start();
+
+        assertEquals(Collections.singletonList("late"), bodies(queues.receiveMessages(queueUrl, 10, 5, 30)));
+        sender.join();
+    }
+
+    @Test
+    public void emptyReceiveReturnsAfterWaitTime() {
+        long start = System.currentTimeMillis();
+
+        assertEquals(Collections.emptyList(), queues.receiveMessages(queueUrl, 10, 1, 30));
+        assertTrue(System.currentTimeMillis() - start >= 900);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsDeletedQueue() {
+        queues.deleteQueue(queueUrl);
+
+        queues.sendMessage(queueUrl, "task");
+    }
+
+    private static List<String> bodies(List<QueueMessage> messages) {
+        String[] bodies = new String[messages.size()];
+        for (int i = 0; i < bodies.length; i++) {
+            bodies[i] = messages.get(i).body();
+        }
+        return Arrays.asList(bodies);
+    }
+}
@@ -0,0 +1,124 @@
+package com.dsp.assignment1;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JobJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path dir;
+
+    @Before
+    public void setUp() throws Exception {
+        Services.install(null, new LocalBlobStore(folder.newFolder("blobs").toPath()), null);
+        dir = folder.getRoot().toPath().resolve("journal");
+    }
+
+    @Test
+    public void replaysRecordsAfterReopen() {
+        JobJournal journal = JobJournal.open(dir);
+        journal.append("CREATE", "job-1", "input/a.txt", "reply-queue", "2", "3", "job-1");
+        journal.append("DISPATCHED", "job-1", "0,1,2");
+        journal.append("RESULT", "job-1", "0", "POS", "https://example.com/a.txt", "Exception: boom", "job-1/0");
+
+        JobJournal reopened = JobJournal.open(dir);
+
+        assertEquals(Arrays.asList(
+                "CREATE\tjob-1\tinput/a.txt\treply-queue\t2\t3\tjob-1",
+                "DISPATCHED\tjob-1\t0,1,2",
+                "RESULT\tjob-1\t0\tPOS\thttps://example.com/a.txt\tException: boom\tjob-1/0"), reopened.records());
+        assertFalse(reopened.restoredFromSnapshot());
+    }
+
+    @Test
+    public void dropsTornLastRecordOnOpen() throws Exception {
+        JobJournal journal = JobJournal.open(dir);
+        journal.append("CREATE", "job-1", "input/a.txt", "reply-queue", "2", "1", "job-1");
+        // A crash in the middle of the next record
+        Files.write(dir.resolve("journal.log"), "RESULT\tjob-1\t0\tPO".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        JobJournal reopened = JobJournal.open(dir);
+        reopened.append("FINISHED", "job-1");
+
+        assertEquals(Arrays.asList(
+                "CREATE\tjob-1\tinput/a.txt\treply-queue\t2\t1\tjob-1",
+                "FINISHED\tjob-1"), reopened.records());
+    }
+
+    @Test
+    public void compactsAwayFinishedJobs() {
+        JobJournal journal = JobJournal.open(dir);
+        journal.append("CREATE", "done", "input/a.txt", "reply-queue", "1", "1", "done");
+        journal.append("CREATE", "open", "input/b.txt", "reply-queue", "1", "2", "open");
+        journal.append("DISPATCHED", "done", "0");
+        journal.append("DISPATCHED", "open", "0,1");
+        journal.append("RESULT", "done", "0", "POS", "https://example.com/a.txt", "Exception: boom", "done/0");
+        journal.append("RESULT", "open", "0", "POS", "https://example.com/b.txt", "Exception: boom", "open/0");
+        journal.append("FINISHED", "done");
+
+        journal.snapshot();
+
+        assertEquals(Arrays.asList(
+                "CREATE\topen\tinput/b.txt\treply-queue\t1\t2\topen",
+                "DISPATCHED\topen\t0,1",
+                "RESULT\topen\t0\tPOS\thttps://example.com/b.txt\tException: boom\topen/0"), journal.records());
+    }
+
+    @Test
+    public void restoresFromSnapshotWithoutLocalJournal() throws Exception {
+        JobJournal journal = JobJournal.open(dir);
+        journal.append("CREATE", "job-1", "input/a.txt", "reply-queue", "2", "1", "job-1");
+        journal.snapshot();
+        journal.append("DISPATCHED", "job-1", "0"); // After the snapshot, so lost with the instance
+
+        JobJournal restored = JobJournal.open(folder.newFolder("new-instance").toPath());
+
+        assertTrue(restored.restoredFromSnapshot());
+        assertEquals(Collections.singletonList("CREATE\tjob-1\tinput/a.txt\treply-queue\t2\t1\tjob-1"), restored.records());
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void skipsSnapshotWhenNothingWasWritten() {
+        JobJournal.open(dir).snapshot();
+
+        Services.blobs().size(Utils.JOURNAL_SNAPSHOT_KEY);
+    }
+
+    @Test
+    public void clearEmptiesJournalAndSnapshot() throws Exception {
+        JobJournal journal = JobJournal.open(dir);
+        journal.append("CREATE", "job-1", "input/a.txt", "reply-queue", "2", "1", "job-1");
+        journal.snapshot();
+
+        journal.clear();
+
+        assertFalse(Files.exists(dir.resolve("journal.log")));
+        assertEquals(0, Services.blobs().size(Utils.JOURNAL_SNAPSHOT_KEY));
+        assertEquals(Collections.emptyList(), JobJournal.open(folder.newFolder("new-instance").toPath()).records());
+    }
+
+    @Test
+    public void disabledJournalRecordsNothing() {
+        JobJournal journal = JobJournal.disabled();
+        journal.append("TERMINATE");
+        journal.snapshot();
+
+        assertEquals(Collections.emptyList(), journal.records());
+    }
+}
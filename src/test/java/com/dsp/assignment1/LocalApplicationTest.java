@@ -0,0 +1,118 @@
+package com.dsp.assignment1;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LocalApplicationTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path inputs;
+
+    @Before
+    public void setUp() throws Exception {
+        Services.install(null, new LocalBlobStore(folder.newFolder("blobs").toPath()), null);
+        inputs = folder.newFolder("inputs").toPath();
+    }
+
+    @Test
+    public void expandsGlobToSortedFiles() throws Exception {
+        Path b = Files.createFile(inputs.resolve("b.txt"));
+        Path a = Files.createFile(inputs.resolve("a.txt"));
+        Files.createFile(inputs.resolve("notes.md"));
+
+        assertEquals(Arrays.asList(a, b), LocalApplication.expandGlob(inputs.resolve("*.txt").toString()));
+    }
+
+    @Test
+    public void expandsGlobWithoutMatchesToNothing() throws Exception {
+        Files.createFile(inputs.resolve("a.md"));
+
+        assertEquals(Collections.emptyList(), LocalApplication.expandGlob(inputs.resolve("*.txt").toString()));
+    }
+
+    @Test
+    public void skipsDirectoriesMatchedByGlob() throws Exception {
+        Files.createDirectory(inputs.resolve("dir.txt"));
+        Path file = Files.createFile(inputs.resolve("file.txt"));
+
+        assertEquals(Collections.singletonList(file), LocalApplication.expandGlob(inputs.resolve("*.txt").toString()));
+    }
+
+    @Test
+    public void keepsLiteralPathAsIs() throws Exception {
+        Path missing = inputs.resolve("missing.txt");
+
+        assertEquals(Collections.singletonList(missing), LocalApplication.expandGlob(missing.toString()));
+    }
+
+    @Test
+    public void routesRepliesByInputKey() throws Exception {
+        LocalApplication.BatchReplies replies = batch("input/batch/0-a.txt", "input/batch/1-b.txt");
+        Services.blobs().putBytes("output/b.html", "<html>b</html>".getBytes(StandardCharsets.UTF_8));
+
+        assertFalse(replies.route("PROGRESS\tinput/batch/1-b.txt\t1\t2\t0\t0\nPOS\thttps://example.com/b.txt\ts3://x/b"));
+        assertTrue(replies.route("DONE\tinput/batch/1-b.txt\toutput/b.html\t2"));
+
+        Path b = inputs.resolve("b.txt");
+        assertEquals("<html>b</html>", new String(Files.readAllBytes(replies.summaries.get(b)), StandardCharsets.UTF_8));
+        assertNull(replies.summaries.get(inputs.resolve("a.txt")));
+        assertEquals(Collections.singletonList("input/batch/0-a.txt"), replies.unfinished());
+    }
+
+    @Test
+    public void countsRepeatedDoneOnce() throws Exception {
+        LocalApplication.BatchReplies replies = batch("input/batch/0-a.txt");
+        Services.blobs().putBytes("output/a.html", "<html>a</html>".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(replies.route("DONE\tinput/batch/0-a.txt\toutput/a.html\t1"));
+        assertFalse(replies.route("DONE\tinput/batch/0-a.txt\toutput/a.html\t1"));
+
+        assertEquals(1, replies.finished.size());
+        assertEquals(Collections.emptyList(), replies.unfinished());
+    }
+
+    @Test
+    public void finishesFailedJobWithoutSummary() throws Exception {
+        LocalApplication.BatchReplies replies = batch("input/batch/0-a.txt");
+
+        assertTrue(replies.route("DONE\tinput/batch/0-a.txt\toutput/error.html\t0\tInput file not found"));
+
+        assertNull(replies.summaries.get(inputs.resolve("a.txt")));
+        assertEquals(Collections.emptyList(), replies.unfinished());
+    }
+
+    @Test
+    public void ignoresRepliesForOtherInputs() throws Exception {
+        LocalApplication.BatchReplies replies = batch("input/batch/0-a.txt");
+
+        assertFalse(replies.route("DONE\tinput/other/0-a.txt\toutput/a.html\t1"));
+        assertFalse(replies.route("output/a.html"));
+
+        assertEquals(Collections.singletonList("input/batch/0-a.txt"), replies.unfinished());
+    }
+
+    private LocalApplication.BatchReplies batch(String... inputFileKeys) {
+        LocalApplication.BatchReplies replies = new LocalApplication.BatchReplies();
+        for (String inputFileKey : inputFileKeys) {
+            String name = inputFileKey.substring(inputFileKey.indexOf('-') + 1);
+            Path input = inputs.resolve(name);
+            replies.summaries.put(input, null);
+            replies.expect(inputFileKey, input, folder.getRoot().toPath().resolve(name.replace(".txt", ".html")));
+        }
+        return replies;
+    }
+}
@@ -0,0 +1,88 @@
+package com.dsp.assignment1;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LocalBlobStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LocalBlobStore blobs;
+
+    @Before
+    public void setUp() throws Exception {
+        blobs = new LocalBlobStore(folder.newFolder("blobs").toPath());
+        blobs.ensureBucketExists();
+    }
+
+    @Test
+    public void putsAndGetsObjects() throws Exception {
+        Path source = folder.newFile("source.txt").toPath();
+        Files.write(source, "from a file".getBytes(StandardCharsets.UTF_8));
+
+        blobs.putFile("input/a.txt", source);
+        blobs.putBytes("output/job/b.txt", "from bytes".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("from a file", read("input/a.txt"));
+        assertEquals("from bytes", read("output/job/b.txt"));
+    }
+
+    @Test
+    public void overwritesExistingObjects() throws Exception {
+        blobs.putBytes("summary.html", "old".getBytes(StandardCharsets.UTF_8));
+        blobs.putBytes("summary.html", "new".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("new", read("summary.html"));
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void failsToGetMissingObject() throws Exception {
+        blobs.getFile("missing.txt", folder.getRoot().toPath().resolve("missing.txt"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsKeysOutsideRoot() {
+        blobs.putBytes("../escaped.txt", new byte[1]);
+    }
+
+    @Test
+    public void mapsKeysToUrisAndBack() {
+        String uri = blobs.uri("output/job/a.txt");
+
+        assertEquals("output/job/a.txt", blobs.keyOf(uri));
+        assertNull(blobs.keyOf("s3://bucket/output/job/a.txt"));
+        assertNull(blobs.keyOf(folder.getRoot().toPath().resolve("elsewhere.txt").toUri().toString()));
+    }
+
+    @Test
+    public void readsSizeAndRanges() {
+        blobs.putBytes("output/job/a.txt", "0123456789".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(10, blobs.size("output/job/a.txt"));
+        assertArrayEquals("2345".getBytes(StandardCharsets.UTF_8), blobs.getRange("output/job/a.txt", 2, 4));
+        assertArrayEquals("89".getBytes(StandardCharsets.UTF_8), blobs.getRange("output/job/a.txt", 8, 4)); // Past the end
+        assertArrayEquals(new byte[0], blobs.getRange("output/job/a.txt", 10, 4));
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void failsToSizeMissingObject() {
+        blobs.size("missing.txt");
+    }
+
+    private String read(String key) throws Exception {
+        Path copy = folder.getRoot().toPath().resolve("copy-" + key.replace('/', '-'));
+        blobs.getFile(key, copy);
+        return new String(Files.readAllBytes(copy), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,179 @@
+package com.dsp.assignment1;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ManagerTest {
+    private static final long SMALL = 1024;
+    private static final long LARGE = Utils.BUNDLE_SMALL_DOCUMENT_BYTES + 1;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void packsSmallDocumentsInOrder() {
+        List<List<Integer>> messages = Manager.packBundles(Arrays.asList(SMALL, SMALL, SMALL));
+
+        assertEquals(Collections.singletonList(Arrays.asList(0, 1, 2)), messages);
+    }
+
+    @Test
+    public void sendsLargeAndUnknownDocumentsAlone() {
+        List<List<Integer>> messages = Manager.packBundles(Arrays.asList(SMALL, LARGE, -1L, SMALL));
+
+        assertEquals(Arrays.asList(
+                Collections.singletonList(1),
+                Collections.singletonList(2),
+                Arrays.asList(0, 3)), messages);
+    }
+
+    @Test
+    public void capsTasksPerBundle() {
+        List<Long> sizes = new ArrayList<>(Collections.nCopies(Utils.BUNDLE_MAX_TASKS + 1, SMALL));
+
+        List<List<Integer>> messages = Manager.packBundles(sizes);
+
+        assertEquals(2, messages.size());
+        assertEquals(Utils.BUNDLE_MAX_TASKS, messages.get(0).size());
+        assertEquals(Collections.singletonList(Utils.BUNDLE_MAX_TASKS), messages.get(1));
+    }
+
+    @Test
+    public void capsBytesPerBundle() {
+        long size = Utils.BUNDLE_SMALL_DOCUMENT_BYTES;
+        int perBundle = (int) (Utils.BUNDLE_MAX_BYTES / size);
+
+        List<List<Integer>> messages = Manager.packBundles(Collections.nCopies(perBundle + 1, size));
+
+        assertEquals(2, messages.size());
+        assertEquals(perBundle, messages.get(0).size());
+    }
+
+    @Test
+    public void sendsNothingForNoDocuments() {
+        assertEquals(Collections.emptyList(), Manager.packBundles(Collections.emptyList()));
+    }
+
+    @Test
+    public void streamsResultsInProgressMessagesWithinSizeLimit() throws Exception {
+        Services.install(new InMemoryQueueService(), new LocalBlobStore(folder.getRoot().toPath()), null);
+        Manager.setupQueues();
+        String replyQueueUrl = Services.queues().createQueue("LocalAppQueue-test");
+        String jobId = UUID.randomUUID().toString();
+        int results = Utils.PROGRESS_MAX_RESULTS + 50;
+        Manager.createJob(jobId, replyQueueUrl, results);
+
+        // Long error messages, so the byte limit splits the batches before the count limit does
+        char[] error = new char[2000];
+        Arrays.fill(error, 'x');
+        List<String> sent = new ArrayList<>();
+        for (int i = 0; i < results; i++) {
+            TaskResult result = new TaskResult("POS", "https://example.com/" + i + ".txt", "Exception: " + new String(error));
+            sent.add(result.encode());
+            // The last result finishes the job, which sends the results not streamed yet before DONE
+            Manager.processResult(new QueueMessage(String.join("\t", jobId, result.inputUrl(), result.output(),
+                    result.analysisType(), "", String.valueOf(i)), "receipt-" + i));
+        }
+
+        List<String> received = new ArrayList<>();
+        List<Integer> receivedIndexes = new ArrayList<>();
+        int progressMessages = 0;
+        String last = null;
+        List<QueueMessage> messages;
+        while (!(messages = Services.queues().receiveMessages(replyQueueUrl, 10, 0, 30)).isEmpty()) {
+            for (QueueMessage message : messages) {
+                last = message.body();
+                if (!last.startsWith("PROGRESS\t")) continue;
+                progressMessages++;
+                assertTrue(last.getBytes(StandardCharsets.UTF_8).length <= Utils.PROGRESS_MAX_BYTES);
+                String[] lines = last.split("\n");
+                String[] header = lines[0].split("\t");
+                assertEquals(String.join("\t", "PROGRESS", jobId, String.valueOf(results), String.valueOf(results),
+                        String.valueOf(results)), String.join("\t", Arrays.asList(header).subList(0, 5)));
+                String[] indexes = header[5].split(",");
+                assertEquals(lines.length - 1, indexes.length);
+                for (String index : indexes) {
+                    receivedIndexes.add(Integer.parseInt(index));
+                }
+                received.addAll(Arrays.asList(lines).subList(1, lines.length));
+            }
+        }
+
+        assertTrue(progressMessages > 2);
+        assertEquals(sent, received);
+        for (int i = 0; i < results; i++) {
+            assertEquals(Integer.valueOf(i), receivedIndexes.get(i));
+        }
+        assertTrue(last.startsWith("DONE\t"));
+    }
+
+    @Test
+    public void retriesSummaryUploadBeforeAnsweringDone() throws Exception {
+        String replyQueueUrl = installFailingUploads(1);
+        String jobId = UUID.randomUUID().toString();
+        Manager.createJob(jobId, replyQueueUrl, 0);
+
+        Manager.finishJob(jobId);
+
+        List<String> replies = receiveAll(replyQueueUrl);
+        assertEquals(Collections.singletonList(String.join("\t", "DONE", jobId, "output/" + jobId + ".html", "0")), replies);
+        Manager.finishJob(jobId); // Already finished: no second DONE
+        assertEquals(Collections.emptyList(), receiveAll(replyQueueUrl));
+    }
+
+    @Test
+    public void answersErrorWhenSummaryCannotBeUploaded() throws Exception {
+        String replyQueueUrl = installFailingUploads(Utils.FINISH_MAX_ATTEMPTS);
+        String jobId = UUID.randomUUID().toString();
+        Manager.createJob(jobId, replyQueueUrl, 0);
+
+        Manager.finishJob(jobId);
+
+        List<String> replies = receiveAll(replyQueueUrl);
+        assertEquals(1, replies.size());
+        String[] done = replies.get(0).split("\t");
+        assertEquals("DONE", done[0]);
+        assertEquals(5, done.length);
+        assertTrue(done[4].startsWith("summary could not be published"));
+        Manager.finishJob(jobId);
+        assertEquals(Collections.emptyList(), receiveAll(replyQueueUrl));
+    }
+
+    // Blob store whose first failures putFile calls fail, as S3 would on an outage
+    private String installFailingUploads(int failures) throws Exception {
+        AtomicInteger remaining = new AtomicInteger(failures);
+        Services.install(new InMemoryQueueService(), new LocalBlobStore(folder.newFolder("blobs").toPath()) {
+            @Override
+            public void putFile(String key, Path file) {
+                if (remaining.getAndDecrement() > 0) throw new RuntimeException("S3 unavailable");
+                super.putFile(key, file);
+            }
+        }, null);
+        Manager.setupQueues();
+        return Services.queues().createQueue("LocalAppQueue-test");
+    }
+
+    private static List<String> receiveAll(String queueUrl) {
+        List<String> bodies = new ArrayList<>();
+        List<QueueMessage> messages;
+        while (!(messages = Services.queues().receiveMessages(queueUrl, 10, 0, 30)).isEmpty()) {
+            for (QueueMessage message : messages) {
+                bodies.add(message.body());
+            }
+        }
+        return bodies;
+    }
+}
@@ -0,0 +1,66 @@
+package com.dsp.assignment1;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsServerTest {
+    private static int port;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        System.setProperty("metrics.port", String.valueOf(port));
+        MetricsServer.startFromProperties();
+        Metrics.counter("test_server_total", "Test counter").add(7);
+    }
+
+    @Test
+    public void servesPrometheusText() throws Exception {
+        HttpURLConnection connection = get("/metrics");
+
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(connection.getContentType().startsWith("text/plain; version=0.0.4"));
+        String body = read(connection);
+        assertTrue(body.contains("test_server_total 7\n"));
+        assertTrue(body.contains("# TYPE jvm_heap_used_bytes gauge\n"));
+    }
+
+    @Test
+    public void servesJson() throws Exception {
+        HttpURLConnection connection = get("/metrics.json");
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("application/json", connection.getContentType());
+        String body = read(connection);
+        assertTrue(body.startsWith("{"));
+        assertTrue(body.contains("\"test_server_total\": 7"));
+    }
+
+    private static HttpURLConnection get(String path) throws Exception {
+        return (HttpURLConnection) new URL("http://127.0.0.1:" + port + path).openConnection();
+    }
+
+    private static String read(HttpURLConnection connection) throws Exception {
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
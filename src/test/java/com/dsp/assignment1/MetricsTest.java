@@ -0,0 +1,94 @@
+package com.dsp.assignment1;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+    @Test
+    public void rendersCounterInPrometheusFormat() {
+        Metrics.Counter counter = Metrics.counter("test_render_total", "Test counter");
+        counter.add(3);
+
+        assertTrue(Metrics.toPrometheus().contains(
+                "# HELP test_render_total Test counter\n# TYPE test_render_total counter\ntest_render_total 3\n"));
+    }
+
+    @Test
+    public void countsValuesOnBucketBoundaryInThatBucket() {
+        Metrics.Histogram histogram = Metrics.histogram("test_boundary_seconds", "Test histogram", 0.1, 1);
+        histogram.observe(0.1); // le="0.1" is inclusive, as in Prometheus
+        histogram.observe(0.5);
+        histogram.observe(1.0);
+        histogram.observe(2.5);
+
+        assertTrue(Metrics.toPrometheus().contains("# TYPE test_boundary_seconds histogram\n"
+                + "test_boundary_seconds_bucket{le=\"0.1\"} 1\n"
+                + "test_boundary_seconds_bucket{le=\"1.0\"} 3\n"
+                + "test_boundary_seconds_bucket{le=\"+Inf\"} 4\n"
+                + "test_boundary_seconds_sum 4.1\n"
+                + "test_boundary_seconds_count 4\n"));
+    }
+
+    @Test
+    public void observesNanosAsSeconds() {
+        Metrics.Histogram histogram = Metrics.histogram("test_nanos_seconds", "Test histogram", 0.001, 0.01);
+        histogram.observeNanos(5_000_000);
+
+        assertTrue(Metrics.toPrometheus().contains("test_nanos_seconds_bucket{le=\"0.001\"} 0\n"
+                + "test_nanos_seconds_bucket{le=\"0.01\"} 1\n"));
+    }
+
+    @Test
+    public void rendersUnknownGaugeAsNaN() {
+        Metrics.gauge("test_unknown_gauge", "Test gauge", () -> null);
+        Metrics.gauge("test_failing_gauge", "Test gauge", () -> {
+            throw new IllegalStateException("unavailable");
+        });
+
+        String text = Metrics.toPrometheus();
+        assertTrue(text.contains("test_unknown_gauge NaN\n"));
+        assertTrue(text.contains("test_failing_gauge NaN\n"));
+        assertTrue(Metrics.toJson().contains("\"test_unknown_gauge\": null"));
+    }
+
+    @Test
+    public void rendersLabeledGaugeWithEscapedLabels() {
+        Map<String, Integer> values = new LinkedHashMap<>();
+        values.put("queue-a", 2);
+        values.put("say \"hi\"", 5);
+        Metrics.labeledGauge("test_labeled", "Test labeled gauge", "queue", () -> values);
+
+        assertTrue(Metrics.toPrometheus().contains(
+                "test_labeled{queue=\"queue-a\"} 2\ntest_labeled{queue=\"say \\\"hi\\\"\"} 5\n"));
+        assertTrue(Metrics.toJson().contains("\"test_labeled\": {\"queue-a\": 2, \"say \\\"hi\\\"\": 5}"));
+    }
+
+    @Test
+    public void rendersHistogramAsJson() {
+        Metrics.Histogram histogram = Metrics.histogram("test_json_seconds", "Test histogram", 1, 5);
+        histogram.observe(0.5);
+        histogram.observe(7);
+
+        assertTrue(Metrics.toJson().contains(
+                "\"test_json_seconds\": {\"buckets\": {\"1.0\": 1, \"5.0\": 1, \"+Inf\": 2}, \"sum\": 7.5, \"count\": 2}"));
+    }
+
+    @Test
+    public void cachesSupplierUntilTtlExpires() throws Exception {
+        int[] calls = {0};
+        Supplier<Integer> cached = Metrics.cached(() -> ++calls[0], 200);
+
+        cached.get();
+        cached.get();
+        Thread.sleep(250);
+        cached.get();
+
+        assertEquals(2, calls[0]);
+    }
+}
@@ -0,0 +1,133 @@
+package com.dsp.assignment1;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class OutputFetcherTest {
+    private static final int PART_SIZE = 16;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path outputDir;
+
+    @Before
+    public void setUp() throws Exception {
+        Services.install(null, new LocalBlobStore(folder.newFolder("blobs").toPath()), null);
+        outputDir = folder.getRoot().toPath().resolve("outputs");
+    }
+
+    @Test
+    public void readsResultLinesFromSummary() throws Exception {
+        Path summary = folder.newFile("summary.html").toPath();
+        Files.write(summary, ("<html><body><p>POS: https://example.com/a.txt s3://bucket/output/job/a.txt</p>\n"
+                + "<p>DEPENDENCY: https://example.com/b.txt Exception: 404 Not Found</p>\n"
+                + "<h3>Latency breakdown</h3>\n"
+                + "<p>End to end: 1200 ms</p>\n"
+                + "<p>Trace file: s3://bucket/output/job.trace.json</p>\n"
+                + "</body></html>").getBytes(StandardCharsets.UTF_8));
+
+        List<TaskResult> results = OutputFetcher.readSummary(summary);
+
+        assertEquals(2, results.size());
+        assertEquals("s3://bucket/output/job/a.txt", results.get(0).output());
+        assertEquals("Exception: 404 Not Found", results.get(1).output());
+    }
+
+    @Test
+    public void fetchesSmallAndMultipartOutputs() throws Exception {
+        byte[] small = bytes(PART_SIZE - 1);
+        byte[] large = bytes(PART_SIZE * 3 + 5);
+        Services.blobs().putBytes("output/job/small.txt", small);
+        Services.blobs().putBytes("output/job/large.txt", large);
+
+        int errors = new OutputFetcher(outputDir, 4, PART_SIZE).fetch(Arrays.asList(
+                result("output/job/small.txt"),
+                result("output/job/large.txt"),
+                new TaskResult("POS", "https://example.com/c.txt", "Exception: boom"),
+                new TaskResult("POS", "https://example.com/d.txt", "s3://elsewhere/d.txt")));
+
+        assertEquals(0, errors);
+        assertArrayEquals(small, Files.readAllBytes(outputDir.resolve("small.txt")));
+        assertArrayEquals(large, Files.readAllBytes(outputDir.resolve("large.txt")));
+        assertFalse(Files.exists(outputDir.resolve("large.txt.partial")));
+        assertFalse(Files.exists(outputDir.resolve("large.txt.parts")));
+        assertEquals(Arrays.asList("OK", "OK", "FAILED", "SKIPPED"), manifestStatuses());
+    }
+
+    @Test
+    public void resumesFromFinishedParts() throws Exception {
+        byte[] content = bytes(PART_SIZE * 3);
+        Services.blobs().putBytes("output/job/large.txt", content);
+
+        // An earlier run finished part 1 only; a marker proves that part is not fetched again
+        byte[] partial = new byte[content.length];
+        byte[] marker = "RESUMED-PART-ONE".getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(marker, 0, partial, PART_SIZE, PART_SIZE);
+        Files.createDirectories(outputDir);
+        Files.write(outputDir.resolve("large.txt.partial"), partial);
+        Files.write(outputDir.resolve("large.txt.parts"), "1\n".getBytes(StandardCharsets.UTF_8));
+
+        int errors = new OutputFetcher(outputDir, 4, PART_SIZE).fetch(Collections.singletonList(result("output/job/large.txt")));
+
+        byte[] expected = content.clone();
+        System.arraycopy(marker, 0, expected, PART_SIZE, PART_SIZE);
+        assertEquals(0, errors);
+        assertArrayEquals(expected, Files.readAllBytes(outputDir.resolve("large.txt")));
+    }
+
+    @Test
+    public void skipsFilesFetchedBefore() throws Exception {
+        Services.blobs().putBytes("output/job/a.txt", bytes(4));
+        Files.createDirectories(outputDir);
+        Files.write(outputDir.resolve("a.txt"), "kept".getBytes(StandardCharsets.UTF_8));
+
+        int errors = new OutputFetcher(outputDir, 1, PART_SIZE).fetch(Collections.singletonList(result("output/job/a.txt")));
+
+        assertEquals(0, errors);
+        assertEquals("kept", new String(Files.readAllBytes(outputDir.resolve("a.txt")), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void reportsMissingOutputsAsErrors() throws Exception {
+        int errors = new OutputFetcher(outputDir, 1, PART_SIZE).fetch(Collections.singletonList(result("output/job/gone.txt")));
+
+        assertEquals(1, errors);
+        assertEquals(Collections.singletonList("ERROR"), manifestStatuses());
+    }
+
+    private static TaskResult result(String key) {
+        return new TaskResult("POS", "https://example.com/" + Paths.get(key).getFileName(), Services.blobs().uri(key));
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) ('a' + i % 26);
+        }
+        return bytes;
+    }
+
+    private List<String> manifestStatuses() throws Exception {
+        List<String> lines = Files.readAllLines(outputDir.resolve("manifest.tsv"), StandardCharsets.UTF_8);
+        String[] statuses = new String[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            statuses[i] = lines.get(i).split("\t")[0];
+        }
+        return Arrays.asList(statuses);
+    }
+}
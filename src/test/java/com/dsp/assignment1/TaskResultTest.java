@@ -0,0 +1,52 @@
+package com.dsp.assignment1;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TaskResultTest {
+    @Test
+    public void roundTrips() {
+        TaskResult result = new TaskResult("POS", "https://example.com/a.txt", "s3://bucket/output/job/a.txt");
+
+        TaskResult parsed = TaskResult.parse(result.encode());
+
+        assertEquals("POS\thttps://example.com/a.txt\ts3://bucket/output/job/a.txt", result.encode());
+        assertEquals("POS", parsed.analysisType());
+        assertEquals("https://example.com/a.txt", parsed.inputUrl());
+        assertEquals("s3://bucket/output/job/a.txt", parsed.output());
+        assertFalse(parsed.failed());
+    }
+
+    @Test
+    public void recognizesFailedTasks() {
+        TaskResult parsed = TaskResult.parse("DEPENDENCY\thttps://example.com/b.txt\tException: 404 Not Found");
+
+        assertTrue(parsed.failed());
+        assertEquals("Exception: 404 Not Found", parsed.output());
+    }
+
+    @Test
+    public void keepsTabsInOutput() {
+        assertEquals("error\twith tab", TaskResult.parse("POS\turl\terror\twith tab").output());
+    }
+
+    @Test
+    public void keepsTaskIndexOutOfEncodedLine() {
+        TaskResult result = new TaskResult("POS", "url", "s3://bucket/a.txt", 7);
+
+        assertEquals("POS\turl\ts3://bucket/a.txt", result.encode());
+        assertEquals(7, TaskResult.parse(result.encode(), 7).taskIndex());
+        assertEquals(-1, TaskResult.parse(result.encode()).taskIndex());
+    }
+
+    @Test
+    public void parsesMissingOutputAsEmpty() {
+        TaskResult parsed = TaskResult.parse("POS\turl");
+
+        assertEquals("", parsed.output());
+        assertFalse(parsed.failed());
+    }
+}
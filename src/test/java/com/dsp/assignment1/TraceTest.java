@@ -0,0 +1,92 @@
+package com.dsp.assignment1;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TraceTest {
+    @Test
+    public void roundTripsMarksInOrder() {
+        Trace trace = new Trace("job-1").mark(Trace.SUBMITTED, 100).mark(Trace.JOB_RECEIVED, 250);
+
+        String encoded = trace.encode();
+        Trace decoded = Trace.decode(encoded);
+
+        assertEquals("job-1;submitted@100;job_received@250", encoded);
+        assertEquals("job-1", decoded.getId());
+        assertEquals(Long.valueOf(100), decoded.get(Trace.SUBMITTED));
+        assertEquals(Long.valueOf(250), decoded.get(Trace.JOB_RECEIVED));
+        assertEquals(encoded, decoded.encode());
+    }
+
+    @Test
+    public void encodesWithoutMessageSeparators() {
+        String encoded = new Trace("job-1").child("7").mark(Trace.DISPATCHED, 5).encode();
+
+        assertEquals("job-1/7;dispatched@5", encoded);
+        assertFalse(encoded.contains("\t"));
+        assertFalse(encoded.contains("\n"));
+    }
+
+    @Test
+    public void skipsMalformedMarks() {
+        Trace trace = Trace.decode("job-1;submitted@abc;@5;noat;parsed@42");
+
+        assertEquals("job-1", trace.getId());
+        assertNull(trace.get(Trace.SUBMITTED));
+        assertEquals(Long.valueOf(42), trace.get(Trace.PARSED));
+        assertEquals("job-1;parsed@42", trace.encode());
+    }
+
+    @Test
+    public void decodesTraceWithoutMarks() {
+        Trace trace = Trace.decode("job-1");
+
+        assertEquals("job-1", trace.getId());
+        assertEquals("job-1", trace.encode());
+    }
+
+    @Test
+    public void breaksDownStagesAcrossTasks() {
+        Trace job = new Trace("job").mark(Trace.SUBMITTED, 0).mark(Trace.JOB_RECEIVED, 10)
+                .mark(Trace.INPUT_DOWNLOADED, 15).mark(Trace.SUMMARY_STARTED, 100).mark(Trace.SUMMARY_DONE, 120);
+        Trace first = job.child("0").mark(Trace.DISPATCHED, 20).mark(Trace.WORKER_RECEIVED, 30);
+        Trace second = job.child("1").mark(Trace.DISPATCHED, 25).mark(Trace.WORKER_RECEIVED, 55);
+
+        Map<String, long[]> stages = new TraceReport(job, Arrays.asList(first, second)).breakdown();
+
+        assertArrayEquals(new long[] {1, 10, 10}, stages.get("Submission queue wait"));
+        assertArrayEquals(new long[] {2, 15, 10}, stages.get("Dispatch"));
+        assertArrayEquals(new long[] {2, 40, 30}, stages.get("Task queue wait"));
+        assertArrayEquals(new long[] {1, 20, 20}, stages.get("Summary building"));
+        assertFalse(stages.containsKey("Parsing")); // Never reached
+    }
+
+    @Test
+    public void clampsClockSkewToZero() {
+        Trace job = new Trace("job").mark(Trace.INPUT_DOWNLOADED, 0);
+        Trace task = job.child("0").mark(Trace.RESULT_SENT, 200).mark(Trace.RESULT_RECEIVED, 150);
+
+        Map<String, long[]> stages = new TraceReport(job, Collections.singletonList(task)).breakdown();
+
+        assertArrayEquals(new long[] {1, 0, 0}, stages.get("Result queue wait"));
+    }
+
+    @Test
+    public void exportsChromeTraceEvents() {
+        Trace job = new Trace("job").mark(Trace.SUBMITTED, 1).mark(Trace.JOB_RECEIVED, 3);
+
+        String json = new TraceReport(job, Collections.emptyList()).toChromeTraceJson();
+
+        assertTrue(json.contains("{\"name\":\"Submission queue wait\",\"ph\":\"X\",\"pid\":1,\"tid\":0,\"ts\":1000,\"dur\":2000"));
+        assertTrue(json.contains("\"otherData\":{\"trace\":\"job\"}"));
+    }
+}
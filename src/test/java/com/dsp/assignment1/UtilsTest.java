@@ -0,0 +1,32 @@
+package com.dsp.assignment1;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class UtilsTest {
+    @Test
+    public void takesNearestRankPercentile() {
+        List<Long> sorted = Arrays.asList(10L, 20L, 30L, 40L, 50L, 60L, 70L, 80L, 90L, 100L);
+
+        assertEquals(Long.valueOf(50), Utils.percentile(sorted, 50));
+        assertEquals(Long.valueOf(100), Utils.percentile(sorted, 95));
+        assertEquals(Long.valueOf(100), Utils.percentile(sorted, 99));
+        assertEquals(Long.valueOf(10), Utils.percentile(sorted, 0));
+    }
+
+    @Test
+    public void takesTheOnlyValueOfASingleton() {
+        assertEquals(Long.valueOf(7), Utils.percentile(Collections.singletonList(7L), 50));
+    }
+
+    @Test
+    public void hasNoPercentileOfNothing() {
+        assertNull(Utils.percentile(Collections.<Long>emptyList(), 50));
+    }
+}
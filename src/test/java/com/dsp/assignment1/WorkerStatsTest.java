@@ -0,0 +1,58 @@
+package com.dsp.assignment1;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+
+public class WorkerStatsTest {
+    @Test
+    public void roundTripsStatsLine() {
+        String line = stats(2, 2).encode();
+
+        WorkerStats parsed = WorkerStats.parse(line);
+
+        assertEquals("STATS\tworker-1\tt3.large\t2\t2\t4096\t512\t1024\t10000000000\tDEPENDENCY:1:20:4000000000,POS:3:30:2000000000", line);
+        assertEquals("worker-1", parsed.workerId());
+        assertEquals("t3.large", parsed.instanceType());
+        assertEquals(1024, parsed.heapPeak());
+        assertEquals(20, parsed.types().get("DEPENDENCY").sentences);
+        assertEquals(line, parsed.encode());
+    }
+
+    @Test
+    public void parsesStatsWithoutParsedSentences() {
+        WorkerStats parsed = WorkerStats.parse("STATS\tworker-1\tt3.large\t2\t2\t4096\t512\t0\t0\t");
+
+        assertEquals(0, parsed.types().size());
+        assertEquals(0, parsed.sentences());
+        assertEquals(0.0, parsed.sentencesPerSecond(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOtherLines() {
+        WorkerStats.parse("POS\thttps://example.com/a.txt\ts3://bucket/a.txt");
+    }
+
+    @Test
+    public void measuresSentencesPerBusySecond() {
+        assertEquals(5.0, stats(2, 2).sentencesPerSecond(), 1e-9); // 50 sentences in 10 s
+    }
+
+    @Test
+    public void discountsCpuWaitWhenThreadsExceedVcpus() {
+        WorkerStats.TypeCost pos = new WorkerStats.TypeCost(3, 30, 2_000_000_000L);
+
+        assertEquals(2.0 / 30, stats(2, 2).cpuSecondsPerSentence(pos), 1e-9);
+        assertEquals(1.0 / 30, stats(2, 4).cpuSecondsPerSentence(pos), 1e-9);
+    }
+
+    private static WorkerStats stats(int vcpus, int threads) {
+        Map<String, WorkerStats.TypeCost> types = new TreeMap<>();
+        types.put("POS", new WorkerStats.TypeCost(3, 30, 2_000_000_000L));
+        types.put("DEPENDENCY", new WorkerStats.TypeCost(1, 20, 4_000_000_000L));
+        return new WorkerStats("worker-1", "t3.large", vcpus, threads, 4096, 512, 1024, 10_000_000_000L, types);
+    }
+}
@@ -0,0 +1,54 @@
+package com.dsp.assignment1;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WorkerTest {
+    @Test
+    public void acceptsWellFormedTasks() {
+        assertNull(Worker.validateTask("POS\thttps://example.com/a.txt\tjob-1".split("\t")));
+        assertNull(Worker.validateTask("POS\thttps://example.com/a.txt\tjob-1\tjob-1/0\t7".split("\t")));
+    }
+
+    @Test
+    public void rejectsTasksWithoutJob() {
+        assertEquals("Malformed task: expected ANALYSIS_TYPE, URL and JOB_ID",
+                Worker.validateTask("POS\thttps://example.com/a.txt".split("\t")));
+        assertEquals("Malformed task: expected ANALYSIS_TYPE, URL and JOB_ID", Worker.validateTask("".split("\t")));
+    }
+
+    @Test
+    public void rejectsNonNumericTaskIndex() {
+        assertEquals("Malformed task index: seven",
+                Worker.validateTask("POS\thttps://example.com/a.txt\tjob-1\tjob-1/0\tseven".split("\t")));
+    }
+
+    @Test
+    public void bundleWithMalformedLineStillAnswersEveryTask() {
+        InMemoryQueueService queues = new InMemoryQueueService();
+        Services.install(queues, null, null);
+        String resultQueueUrl = queues.createQueue("WorkerTest-results");
+        String bundle = String.join("\n",
+                "POS\tfile:///missing/a.txt\tjob-1\tjob-1/0\t0",
+                "garbage",
+                "POS\tfile:///missing/c.txt\tjob-1\tjob-1/2\tseven");
+
+        Worker.processMessage(new QueueMessage(bundle, "receipt"), resultQueueUrl);
+
+        String[] lines = queues.receiveMessages(resultQueueUrl, 1, 0, 30).get(0).body().split("\n");
+        assertEquals(4, lines.length); // Three results and the stats line
+        String[] first = lines[0].split("\t");
+        assertEquals("job-1", first[0]);
+        assertTrue(first[2].startsWith("Exception: ")); // Download failed, processed as usual
+        assertEquals("0", first[5]);
+        assertTrue(lines[1].startsWith("\t\tException: Malformed task: "));
+        String[] third = lines[2].split("\t");
+        assertEquals("job-1", third[0]);
+        assertEquals("Exception: Malformed task index: seven", third[2]);
+        assertEquals(5, third.length); // No task index to report
+        assertTrue(lines[3].startsWith(WorkerStats.PREFIX + "\t"));
+    }
+}